@@ -0,0 +1,99 @@
+package by.bsuir.signature;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ModExpBenchmark {
+
+    @Param({"1024", "2048", "3072"})
+    private int pBits;
+
+    private BigInteger p;
+
+    private BigInteger q;
+
+    private BigInteger g;
+
+    private BigInteger y;
+
+    private BigInteger e1;
+
+    private BigInteger e2;
+
+    private Montgomery montgomery;
+
+    private FixedBaseTable table;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        q = BigInteger.probablePrime(256, random);
+        p = new BigInteger(pBits, random).setBit(pBits - 1).setBit(0);
+        g = new BigInteger(pBits - 1, random);
+        y = new BigInteger(pBits - 1, random);
+        e1 = new BigInteger(255, random);
+        e2 = new BigInteger(255, random);
+        montgomery = new Montgomery(p);
+        table = new FixedBaseTable(g, montgomery, q);
+    }
+
+    // powByMod as it was before the Montgomery engine
+    private static BigInteger legacyPowByMod(BigInteger a, BigInteger b, BigInteger m) {
+        a = a.mod(m);
+        BigInteger x = BigInteger.ONE;
+        while (b.signum() != 0) {
+            while (b.mod(BigInteger.TWO).signum() == 0) {
+                b = b.divide(BigInteger.TWO);
+                a = a.multiply(a).mod(m);
+            }
+            b = b.subtract(BigInteger.ONE);
+            x = x.multiply(a).mod(m);
+        }
+        return x;
+    }
+
+    @Benchmark
+    public BigInteger legacyPowByMod() {
+        return legacyPowByMod(g, e1, p);
+    }
+
+    @Benchmark
+    public BigInteger powByMod() {
+        return DigitalSignature.powByMod(g, e1, p);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerModPow() {
+        return g.modPow(e1, p);
+    }
+
+    @Benchmark
+    public BigInteger montgomeryPow() {
+        return montgomery.pow(g, e1);
+    }
+
+    @Benchmark
+    public BigInteger fixedBaseTable() {
+        return table.pow(e1);
+    }
+
+    @Benchmark
+    public BigInteger legacyTwoPowers() {
+        return legacyPowByMod(g, e1, p).multiply(legacyPowByMod(y, e2, p)).mod(p);
+    }
+
+    @Benchmark
+    public BigInteger multiExponentiation() {
+        return MultiExponentiation.powProduct(g, e1, y, e2, montgomery);
+    }
+
+}
@@ -0,0 +1,61 @@
+package by.bsuir.signature;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimalityBenchmark {
+
+    // the UI checks p and q with 10 rounds
+    private static final int ROUNDS = 10;
+
+    @Param({"1024", "2048", "3072"})
+    private int bits;
+
+    private BigInteger prime;
+
+    private BigInteger composite;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        prime = BigInteger.probablePrime(bits, random);
+        do {
+            composite = new BigInteger(bits, random).setBit(bits - 1).setBit(0);
+        } while (composite.isProbablePrime(20) || Primality.hasSmallFactor(composite));
+    }
+
+    @Setup(Level.Invocation)
+    public void forgetCertifiedPrimes() {
+        Primality.clearCertified();
+    }
+
+    @Benchmark
+    public boolean isProbablePrime() {
+        return DigitalSignature.isProbablePrime(prime, ROUNDS);
+    }
+
+    @Benchmark
+    public boolean isProbablePrimeParallel() {
+        return Primality.isProbablePrime(prime, ROUNDS, true);
+    }
+
+    @Benchmark
+    public boolean isProbablePrimeComposite() {
+        return DigitalSignature.isProbablePrime(composite, ROUNDS);
+    }
+
+    @Benchmark
+    public boolean bigIntegerIsProbablePrime() {
+        return prime.isProbablePrime(2 * ROUNDS);
+    }
+
+}
@@ -0,0 +1,56 @@
+package by.bsuir.signature;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class Sha1Benchmark {
+
+    private static final int CHUNK = 8 * 1024;
+
+    @Param({"64", "1024", "65536", "1048576", "16777216"})
+    private int size;
+
+    private byte[] message;
+
+    private SHA1 sha1;
+
+    private MessageDigest jdkSha1;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        message = new byte[size];
+        new Random(1).nextBytes(message);
+        sha1 = new SHA1();
+        jdkSha1 = MessageDigest.getInstance("SHA-1");
+    }
+
+    @Benchmark
+    public BigInteger sha1() {
+        return sha1.sha1(message);
+    }
+
+    @Benchmark
+    public BigInteger sha1Streaming() {
+        for (int offset = 0; offset < message.length; offset += CHUNK) {
+            sha1.update(message, offset, Math.min(CHUNK, message.length - offset));
+        }
+        return sha1.digest();
+    }
+
+    @Benchmark
+    public byte[] jdkSha1() {
+        return jdkSha1.digest(message);
+    }
+
+}
@@ -0,0 +1,75 @@
+package by.bsuir.signature;
+
+import by.bsuir.signature.exceptions.WrongFileException;
+import by.bsuir.signature.exceptions.WrongResultException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureBenchmark {
+
+    @Param({"2048", "3072"})
+    private int pBits;
+
+    @Param({"1024", "1048576", "67108864"})
+    private int fileSize;
+
+    private Path directory;
+
+    private File file;
+
+    private File signedFile;
+
+    private DigitalSignature signer;
+
+    private DigitalSignature verifier;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException, WrongResultException {
+        PrivateKey key = new ParameterGenerator().generate(pBits, 256).getPrivateKey();
+        BigInteger q = key.getParameters().getQ();
+        Random random = new Random(1);
+        BigInteger k;
+        do {
+            k = new BigInteger(q.bitLength(), random);
+        } while (k.signum() == 0 || k.compareTo(q) >= 0);
+        signer = new DigitalSignature(key, k, (r, s, hash) -> {});
+        verifier = new DigitalSignature(key.getPublicKey(), (r, s, hash) -> {});
+        directory = Files.createTempDirectory("signature-benchmark");
+        byte[] content = new byte[fileSize];
+        random.nextBytes(content);
+        file = Files.write(directory.resolve("file.bin"), content).toFile();
+        signedFile = directory.resolve("file(signed).txt").toFile();
+        signer.signFile(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(signedFile.toPath());
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void signFile() throws WrongResultException, IOException {
+        signer.signFile(file);
+    }
+
+    @Benchmark
+    public BigInteger[] checkSignature() throws WrongFileException, IOException {
+        return verifier.checkSignature(signedFile);
+    }
+
+}
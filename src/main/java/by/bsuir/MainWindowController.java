@@ -1,19 +1,30 @@
 package by.bsuir;
 
 import by.bsuir.signature.DigitalSignature;
+import by.bsuir.signature.DomainParameters;
 import by.bsuir.signature.Listener;
+import by.bsuir.signature.PrivateKey;
 import by.bsuir.signature.exceptions.WrongFileException;
 import by.bsuir.signature.exceptions.WrongResultException;
 import by.bsuir.signature.exceptions.WrongValueException;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.stage.FileChooser;
 
 import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class MainWindowController {
 
@@ -32,6 +43,12 @@ public class MainWindowController {
     @FXML
     private Button fileButton;
 
+    @FXML
+    private Button cancelButton;
+
+    @FXML
+    private ProgressBar progressBar;
+
     @FXML
     private TextArea logField;
 
@@ -49,10 +66,27 @@ public class MainWindowController {
 
     private File file;
 
-    private final Listener listener = (r, s, hash) -> logField.setText(r + "," + s + "\nHash: " + hash);
+    private PrivateKey privateKey;
+
+    private String privateKeyInput;
+
+    // files are signed and checked one at a time in the order the buttons were pressed
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "signature-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Task<?>> tasks = new ArrayList<>();
 
     @FXML
     void initialize() {
+        // a layout from before these controls were added has no place for them, so they are kept off screen
+        if (cancelButton == null) cancelButton = new Button("Cancel");
+        if (progressBar == null) progressBar = new ProgressBar(0);
+        cancelButton.setDisable(true);
+        cancelButton.setOnAction(actionEvent -> new ArrayList<>(tasks).forEach(Task::cancel));
+
         fileButton.setOnAction(actionEvent -> {
             FileChooser chooser = new FileChooser();
             file = chooser.showOpenDialog(App.getStage());
@@ -67,34 +101,22 @@ public class MainWindowController {
             if (file == null) {
                 printFileNotFoundError();
             } else {
-                BigInteger q = readQ();
-                BigInteger p = readP();
-                BigInteger h = readH();
-                BigInteger x = readX();
+                PrivateKey key = readPrivateKey();
                 BigInteger k = readK();
-                if (q != null && p != null && h != null && x != null && k != null) {
-                    if (q.signum() <= 0 || p.signum() <= 0 || h.signum() <= 0 || x.signum() <= 0 || k.signum() <= 0) {
+                if (key != null && k != null) {
+                    if (k.signum() <= 0) {
                         printNumberIsNegative();
-                    } else if (!DigitalSignature.isProbablePrime(p, 10) || !DigitalSignature.isProbablePrime(q,10)) {
-                        printNumberIsNotPrime();
-                    } else if (p.subtract(BigInteger.ONE).mod(q).signum() != 0) {
-                        printInvalidP();
-                    } else if (!h.max(BigInteger.TWO).equals(h) || !h.min(p.subtract(BigInteger.TWO)).equals(h)) {
-                        printInvalidH();
-                    } else if (!x.max(BigInteger.ONE).equals(x) || !x.min(q.subtract(BigInteger.ONE)).equals(x)) {
-                        printInvalidXorK("X");
-                    } else if (!k.max(BigInteger.ONE).equals(k) || !k.min(q.subtract(BigInteger.ONE)).equals(k)) {
+                    } else if (!k.max(BigInteger.ONE).equals(k) || !k.min(key.getParameters().getQ().subtract(BigInteger.ONE)).equals(k)) {
                         printInvalidXorK("K");
                     } else {
-                        DigitalSignature signature = new DigitalSignature(q, p, h, x, k, listener);
-                        try {
-                            signature.signFile(file);
-                            printFileSigned();
-                        } catch (WrongValueException e) {
-                            printInvalidG();
-                        } catch (WrongResultException e) {
-                            printInvalidSorR();
-                        }
+                        File fileToSign = file;
+                        submit(new SignatureTask<Void>(fileToSign) {
+                            @Override
+                            protected Void call() throws WrongResultException, IOException {
+                                new DigitalSignature(key, k, this).signFile(fileToSign);
+                                return null;
+                            }
+                        }, result -> printFileSigned());
                     }
                 }
             }
@@ -104,43 +126,100 @@ public class MainWindowController {
             if (file == null) {
                 printFileNotFoundError();
             } else {
-                BigInteger q = readQ();
-                BigInteger p = readP();
-                BigInteger h = readH();
-                BigInteger x = readX();
-                BigInteger k = readK();
-                if (q != null && p != null && h != null && x != null && k != null) {
-                    if (q.signum() <= 0 || p.signum() <= 0 || h.signum() <= 0 || x.signum() <= 0 || k.signum() <= 0) {
-                        printNumberIsNegative();
-                    } else if (!DigitalSignature.isProbablePrime(p, 10) || !DigitalSignature.isProbablePrime(q,10)) {
-                        printNumberIsNotPrime();
-                    } else if (p.subtract(BigInteger.ONE).mod(q).signum() != 0) {
-                        printInvalidP();
-                    } else if (!h.max(BigInteger.TWO).equals(h) || !h.min(p.subtract(BigInteger.TWO)).equals(h)) {
-                        printInvalidH();
-                    } else if (!x.max(BigInteger.ONE).equals(x) || !x.min(q.subtract(BigInteger.ONE)).equals(x)) {
-                        printInvalidXorK("X");
-                    } else if (!k.max(BigInteger.ONE).equals(k) || !k.min(q.subtract(BigInteger.ONE)).equals(k)) {
-                        printInvalidXorK("K");
-                    } else {
-                        DigitalSignature signature = new DigitalSignature(q, p, h, x, k, listener);
-                        try {
-                            BigInteger[] numbers = signature.checkSignature(file);
-                            if (numbers[0].equals(numbers[1])) {
-                                printFileHasCorrectSign(numbers[0], numbers[1], numbers[2]);
-                            } else {
-                                printFileHasIncorrectSign(numbers[0], numbers[1], numbers[2]);
-                            }
-                        } catch (WrongFileException e) {
-                            printFileNotSigned();
+                PrivateKey key = readPrivateKey();
+                if (key != null) {
+                    File fileToCheck = file;
+                    submit(new SignatureTask<BigInteger[]>(fileToCheck) {
+                        @Override
+                        protected BigInteger[] call() throws WrongFileException, IOException {
+                            return new DigitalSignature(key.getPublicKey(), this).checkSignature(fileToCheck);
                         }
-                    }
+                    }, numbers -> {
+                        if (numbers[0].equals(numbers[1])) {
+                            printFileHasCorrectSign(numbers[0], numbers[1], numbers[2]);
+                        } else {
+                            printFileHasIncorrectSign(numbers[0], numbers[1], numbers[2]);
+                        }
+                    });
                 }
             }
         });
 
     }
 
+    // the handlers run on the FX thread, the progress bar follows whichever task is running
+    private <V> void submit(SignatureTask<V> task, Consumer<V> onSucceeded) {
+        task.setOnRunning(event -> progressBar.progressProperty().bind(task.progressProperty()));
+        task.setOnSucceeded(event -> {
+            finish(task);
+            onSucceeded.accept(task.getValue());
+        });
+        task.setOnFailed(event -> {
+            finish(task);
+            Throwable e = task.getException();
+            if (e instanceof WrongResultException) {
+                printInvalidSorR();
+            } else if (e instanceof WrongFileException) {
+                printFileNotSigned();
+            } else if (e instanceof IOException) {
+                printIOError((IOException) e);
+            } else {
+                e.printStackTrace();
+            }
+        });
+        task.setOnCancelled(event -> {
+            finish(task);
+            logField.setText("Cancelled: " + task.getFile().getAbsolutePath());
+        });
+        tasks.add(task);
+        cancelButton.setDisable(false);
+        executor.execute(task);
+    }
+
+    private void finish(Task<?> task) {
+        tasks.remove(task);
+        progressBar.progressProperty().unbind();
+        progressBar.setProgress(0);
+        cancelButton.setDisable(tasks.isEmpty());
+    }
+
+    private PrivateKey readPrivateKey() {
+        String input = pField.getText() + "," + qField.getText() + "," + hField.getText() + "," + xField.getText();
+        if (input.equals(privateKeyInput)) {
+            return privateKey;
+        }
+        BigInteger q = readQ();
+        BigInteger p = readP();
+        BigInteger h = readH();
+        BigInteger x = readX();
+        if (q == null || p == null || h == null || x == null) {
+            return null;
+        }
+        DomainParameters.Defect defect = DomainParameters.findDefectOfH(p, q, h);
+        if (defect == DomainParameters.Defect.NOT_POSITIVE || h.signum() <= 0 || x.signum() <= 0) {
+            printNumberIsNegative();
+        } else if (defect == DomainParameters.Defect.NOT_PRIME) {
+            printNumberIsNotPrime();
+        } else if (defect == DomainParameters.Defect.Q_DOES_NOT_DIVIDE) {
+            printInvalidP();
+        } else if (defect == DomainParameters.Defect.H_OUT_OF_RANGE) {
+            printInvalidH();
+        } else if (defect != null) {
+            printInvalidG();
+        } else if (!x.max(BigInteger.ONE).equals(x) || !x.min(q.subtract(BigInteger.ONE)).equals(x)) {
+            printInvalidXorK("X");
+        } else {
+            try {
+                privateKey = new PrivateKey(DomainParameters.fromH(p, q, h), x);
+                privateKeyInput = input;
+                return privateKey;
+            } catch (WrongValueException e) {
+                printInvalidG();
+            }
+        }
+        return null;
+    }
+
     private BigInteger readQ() {
         BigInteger q = null;
         try {
@@ -287,6 +366,14 @@ public class MainWindowController {
         alert.show();
     }
 
+    private void printIOError(IOException e) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Error");
+        alert.setHeaderText(null);
+        alert.setContentText("Can't Read or Write the File\n" + e);
+        alert.show();
+    }
+
     private void printFileNotFoundError() {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle("Error");
@@ -295,4 +382,32 @@ public class MainWindowController {
         alert.show();
     }
 
+    private abstract class SignatureTask<V> extends Task<V> implements Listener {
+
+        private final File file;
+
+        SignatureTask(File file) {
+            this.file = file;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        @Override
+        public void showSign(BigInteger r, BigInteger s, BigInteger hash) {
+            Platform.runLater(() -> logField.setText(r + "," + s + "\nHash: " + hash));
+        }
+
+        @Override
+        public void showProgress(Phase phase, long bytesDone, long total) {
+            if (phase == Phase.HASHING && total > 0) {
+                updateProgress(bytesDone, total);
+            } else {
+                updateProgress(-1, 1);
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,202 @@
+package by.bsuir.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Watches directory trees and hands every created or modified file to the handler once its events have been quiet
+// for the debounce time, so a burst of writes to one file ends in a single call. New subdirectories are watched
+// and scanned as they appear, and an overflowed directory is rescanned. When all workers are busy and the queue
+// is full, the debounce thread runs the handler itself, which holds back further dispatch instead of queueing
+// without bound. A directory that cannot be read is reported and skipped, one that vanished is skipped silently;
+// only close() ends run().
+final class DirectoryWatcher implements Closeable {
+
+    private static final long SHUTDOWN_SECONDS = 30;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+
+    // the time each waiting file becomes due, an event for a waiting file only moves its time
+    private final Map<Path, Long> pending = new ConcurrentHashMap<>();
+
+    private final long debounceNanos;
+
+    private final Consumer<Path> handler;
+
+    private final BiConsumer<Path, IOException> errors;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("watch-debounce"));
+
+    private final ThreadPoolExecutor workers;
+
+    DirectoryWatcher(List<Path> roots, long debounceMillis, int threads, Consumer<Path> handler, BiConsumer<Path, IOException> errors) throws IOException {
+        this.watchService = roots.get(0).getFileSystem().newWatchService();
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.handler = handler;
+        this.errors = errors;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4 * threads),
+                daemonThreads("watch-worker"), new ThreadPoolExecutor.CallerRunsPolicy());
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                close();
+                throw new NotDirectoryException(root.toString());
+            }
+            walk(root, Integer.MAX_VALUE, true, false);
+        }
+    }
+
+    // blocks until the watcher is closed
+    void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (directory == null) break;
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        walk(directory, 1, false, true);
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        // files already in a directory that appeared while running were created before it could be watched
+                        walk(path, Integer.MAX_VALUE, true, true);
+                    } else {
+                        schedule(path);
+                    }
+                }
+                if (!key.reset()) directories.remove(key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed by close()
+        }
+    }
+
+    // symbolic links are not followed, a failure ends only the subtree it happened in
+    private void walk(Path root, int depth, boolean registerDirectories, boolean scheduleFiles) {
+        try {
+            Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), depth, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                    if (!registerDirectories) return FileVisitResult.CONTINUE;
+                    try {
+                        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                        directories.put(key, directory);
+                        return FileVisitResult.CONTINUE;
+                    } catch (IOException e) {
+                        failed(directory, e);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (scheduleFiles && attributes.isRegularFile()) schedule(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    failed(file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+                    if (e != null) failed(directory, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            failed(root, e);
+        }
+    }
+
+    private void failed(Path path, IOException e) {
+        if (e instanceof NoSuchFileException) return;
+        try {
+            errors.accept(path, e);
+        } catch (RuntimeException reportFailure) {
+            reportFailure.printStackTrace();
+        }
+    }
+
+    private void schedule(Path path) {
+        if (pending.put(path, System.nanoTime() + debounceNanos) == null) {
+            scheduler.schedule(() -> fire(path), debounceNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void fire(Path path) {
+        Long due = pending.get(path);
+        if (due == null) return;
+        long remaining = due - System.nanoTime();
+        if (remaining > 0) {
+            scheduler.schedule(() -> fire(path), remaining, TimeUnit.NANOSECONDS);
+        } else if (!pending.remove(path, due)) {
+            // an event came in between, look again
+            scheduler.execute(() -> fire(path));
+        } else {
+            workers.execute(() -> handle(path));
+        }
+    }
+
+    private void handle(Path path) {
+        try {
+            handler.accept(path);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // files already handed to the workers are finished, so no half-written temp files are left behind
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        scheduler.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
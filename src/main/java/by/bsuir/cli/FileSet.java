@@ -0,0 +1,74 @@
+package by.bsuir.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// named files are taken as they are, directories and globs only contribute files accepted by the filter
+final class FileSet {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private FileSet() {
+    }
+
+    static List<Path> expand(List<String> arguments, Predicate<Path> filter) throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        for (String argument : arguments) {
+            if (!isGlob(argument)) {
+                Path path = Paths.get(argument);
+                if (Files.isDirectory(path)) {
+                    walk(path, Integer.MAX_VALUE, file -> true, filter, files);
+                } else {
+                    files.add(path);
+                }
+                continue;
+            }
+            // the part before the first segment with a wildcard is where the walk starts
+            Path pattern = Paths.get(argument);
+            Path base = pattern.isAbsolute() ? pattern.getRoot() : Paths.get(".");
+            if (pattern.isAbsolute()) pattern = base.relativize(pattern);
+            int fixed = 0;
+            while (fixed < pattern.getNameCount() - 1 && !isGlob(pattern.getName(fixed).toString())) {
+                fixed++;
+            }
+            if (fixed > 0) {
+                base = base.resolve(pattern.subpath(0, fixed));
+                pattern = pattern.subpath(fixed, pattern.getNameCount());
+            }
+            if (!Files.isDirectory(base)) continue;
+            PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + pattern);
+            int depth = pattern.toString().contains("**") ? Integer.MAX_VALUE : pattern.getNameCount();
+            Path root = base;
+            walk(base, depth, file -> matcher.matches(root.relativize(file)), filter, files);
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static boolean isGlob(String argument) {
+        for (int i = 0; i < argument.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(argument.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+
+    private static void walk(Path directory, int depth, Predicate<Path> matcher, Predicate<Path> filter, Set<Path> files) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory, depth)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(matcher)
+                    .filter(filter)
+                    .map(Path::normalize)
+                    .sorted()
+                    .forEach(files::add);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package by.bsuir.cli;
+
+import by.bsuir.signature.DomainParameters;
+import by.bsuir.signature.GeneratedParameters;
+import by.bsuir.signature.PrivateKey;
+import by.bsuir.signature.PublicKey;
+import by.bsuir.signature.exceptions.WrongValueException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+
+// p, q and g (or h as in the main window) with x for signing or y for checking, all decimal
+final class KeyFile {
+
+    private final DomainParameters parameters;
+
+    private final BigInteger x;
+
+    private final BigInteger y;
+
+    private KeyFile(DomainParameters parameters, BigInteger x, BigInteger y) {
+        this.parameters = parameters;
+        this.x = x;
+        this.y = y;
+    }
+
+    static KeyFile load(Path path) throws IOException, WrongValueException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        BigInteger p = number(properties, "p");
+        BigInteger q = number(properties, "q");
+        BigInteger g = number(properties, "g");
+        BigInteger h = number(properties, "h");
+        BigInteger x = number(properties, "x");
+        BigInteger y = number(properties, "y");
+        if (p == null || q == null || (g == null && h == null) || (x == null && y == null)) throw new WrongValueException();
+        DomainParameters parameters = g != null ? new DomainParameters(p, q, g) : DomainParameters.fromH(p, q, h);
+        return new KeyFile(parameters, x, y);
+    }
+
+    static void store(Path path, GeneratedParameters generated, boolean withPrivateKey) throws IOException {
+        PrivateKey privateKey = generated.getPrivateKey();
+        DomainParameters parameters = generated.getParameters();
+        Properties properties = new Properties();
+        properties.setProperty("p", parameters.getP().toString());
+        properties.setProperty("q", parameters.getQ().toString());
+        properties.setProperty("g", parameters.getG().toString());
+        properties.setProperty("h", generated.getH().toString());
+        properties.setProperty("y", privateKey.getPublicKey().getY().toString());
+        if (withPrivateKey) {
+            properties.setProperty("x", privateKey.getX().toString());
+            // the private key is readable by its owner only where the file system allows it
+            if (!Files.exists(path) && FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            }
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            properties.store(writer, withPrivateKey ? "DSA private key" : "DSA public key");
+        }
+    }
+
+    DomainParameters getParameters() {
+        return parameters;
+    }
+
+    boolean hasPrivateKey() {
+        return x != null;
+    }
+
+    PrivateKey getPrivateKey() throws WrongValueException {
+        if (x == null) throw new WrongValueException();
+        PrivateKey privateKey;
+        try {
+            privateKey = new PrivateKey(parameters, x);
+        } catch (IllegalArgumentException e) {
+            throw new WrongValueException();
+        }
+        if (y != null && !y.equals(privateKey.getPublicKey().getY())) throw new WrongValueException();
+        return privateKey;
+    }
+
+    PublicKey getPublicKey() throws WrongValueException {
+        if (y == null) return getPrivateKey().getPublicKey();
+        try {
+            return new PublicKey(parameters, y);
+        } catch (IllegalArgumentException e) {
+            throw new WrongValueException();
+        }
+    }
+
+    private static BigInteger number(Properties properties, String name) throws WrongValueException {
+        String value = properties.getProperty(name);
+        if (value == null) return null;
+        try {
+            return new BigInteger(value.trim());
+        } catch (NumberFormatException e) {
+            throw new WrongValueException();
+        }
+    }
+
+}
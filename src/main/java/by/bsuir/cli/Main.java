@@ -0,0 +1,470 @@
+package by.bsuir.cli;
+
+import by.bsuir.signature.CheckpointStore;
+import by.bsuir.signature.DigitalSignature;
+import by.bsuir.signature.DomainParameters;
+import by.bsuir.signature.GeneratedParameters;
+import by.bsuir.signature.HashAlgorithm;
+import by.bsuir.signature.Metrics;
+import by.bsuir.signature.Nonce;
+import by.bsuir.signature.NonceSource;
+import by.bsuir.signature.ParameterGenerator;
+import by.bsuir.signature.PrivateKey;
+import by.bsuir.signature.PublicKey;
+import by.bsuir.signature.SignatureMetrics;
+import by.bsuir.signature.VerificationCache;
+import by.bsuir.signature.VerificationResult;
+import by.bsuir.signature.exceptions.WrongFileException;
+import by.bsuir.signature.exceptions.WrongResultException;
+import by.bsuir.signature.exceptions.WrongValueException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// headless entry point, it never touches the JavaFX classes so it starts as fast as a plain JVM
+public final class Main {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage:",
+            "  sign   --key <file> [--algorithm SHA-1|SHA-256|SHA-512] [--tree <chunk bytes>] [--detached [--checkpoints <dir>]]",
+            "         [--threads <n>] [--format tsv|json] [--metrics] <file|directory|glob>...",
+            "  verify --key <file> [--algorithm <name>] [--detached] [--format tsv|json] [--metrics]",
+            "         [--cache <index file> [--recheck]] <file|directory|glob>...",
+            "  keygen --out <file> [--public <file>] [--p-bits <n>] [--q-bits <n>] [--threads <n>] [--format tsv|json]",
+            "  serve  --key <file> [--socket <path, default <key file>.sock> | --port <n> --token <file>] [--pool <n>]",
+            "         [--algorithm <name>] [--tree <chunk bytes>] [--detached] [--format tsv|json]",
+            "         requests are \"sign <absolute path>\" or \"verify <absolute path>\" lines; over TCP the first line",
+            "         is \"token <contents of the token file>\", a missing token file is created owner-only",
+            "  watch  --key <file> [--detached] [--verify-only] [--debounce <ms>] [--threads <n>] [--algorithm <name>]",
+            "         [--tree <chunk bytes>] [--checkpoints <dir>] [--format tsv|json] <directory>...",
+            "  --checkpoints is for append-only files signed --detached with SHA-1: re-signing hashes only what was",
+            "         appended. Only the start and end of the old content are compared, so a file edited in the middle",
+            "         without shrinking gets a signature that does not verify. The directory must be owner-only.");
+
+    private static final Set<String> FLAGS = Set.of("detached", "metrics", "recheck", "verify-only");
+
+    private static final String SIGNED_SUFFIX = "(signed).txt";
+
+    private static final String DETACHED_SUFFIX = ".sig";
+
+    private Main() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    // 0 when every file was handled, 1 when some were not signed or not valid, 2 for bad arguments or keys
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0) {
+            err.println(USAGE);
+            return 2;
+        }
+        Map<String, String> options = new HashMap<>();
+        List<String> arguments = new ArrayList<>();
+        try {
+            parse(args, options, arguments);
+            switch (args[0]) {
+                case "sign":
+                    return sign(options, arguments, out, err);
+                case "verify":
+                    return verify(options, arguments, out, err);
+                case "keygen":
+                    return keygen(options, out);
+                case "serve":
+                    return serve(options, out);
+                case "watch":
+                    return watch(options, arguments, out, err);
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+        } catch (WrongValueException e) {
+            err.println("The key file is not valid");
+        } catch (IOException e) {
+            err.println(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 2;
+    }
+
+    private static int sign(Map<String, String> options, List<String> arguments, PrintStream out, PrintStream err) throws IOException, WrongValueException, InterruptedException {
+        PrivateKey privateKey = KeyFile.load(path(options, "key")).getPrivateKey();
+        List<Path> files = FileSet.expand(arguments, path -> !isSignature(path));
+        if (files.isEmpty()) {
+            err.println("No files to sign");
+            return 1;
+        }
+        CheckpointStore checkpoints = checkpoints(options);
+        Report report = new Report(out, isJson(options), "path", "status", "r", "s", "hash", "error");
+        Set<Path> sharing = options.containsKey("detached") ? Set.of() : sharingSignedFile(files);
+        NonceSource nonces = randomNonces(privateKey.getParameters());
+        SignatureMetrics metrics = options.containsKey("metrics") ? new SignatureMetrics() : null;
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads(options));
+        try {
+            for (Path file : files) {
+                if (sharing.contains(file)) {
+                    report.row(file, "error", null, null, null, sharedMessage(file));
+                    failed.incrementAndGet();
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        BigInteger[] result = signFile(privateKey, nonces, options, metrics, checkpoints, file);
+                        report.row(file, "signed", result[0], result[1], result[2], null);
+                    } catch (Exception e) {
+                        report.row(file, "error", null, null, null, message(e));
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+        printMetrics(metrics, options, err);
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    // {r, s, hash}
+    private static BigInteger[] signFile(PrivateKey privateKey, NonceSource nonces, Map<String, String> options, Metrics metrics, CheckpointStore checkpoints, Path file) throws IOException, WrongResultException {
+        BigInteger[] result = new BigInteger[3];
+        DigitalSignature signature = new DigitalSignature(privateKey, nonces, (r, s, hash) -> {
+            result[0] = r;
+            result[1] = s;
+            result[2] = hash;
+        });
+        configure(signature, options);
+        if (metrics != null) signature.setMetrics(metrics);
+        signature.setCheckpointStore(checkpoints);
+        if (!Files.isRegularFile(file)) throw new NoSuchFileException(file.toString());
+        signature.signFile(file.toFile());
+        return result;
+    }
+
+    private static int verify(Map<String, String> options, List<String> arguments, PrintStream out, PrintStream err) throws IOException, WrongValueException {
+        PublicKey publicKey = KeyFile.load(path(options, "key")).getPublicKey();
+        boolean detached = options.containsKey("detached");
+        Predicate<Path> signed = detached
+                ? path -> Files.isRegularFile(path.resolveSibling(path.getFileName() + DETACHED_SUFFIX))
+                : path -> path.getFileName().toString().endsWith(SIGNED_SUFFIX);
+        List<Path> files = FileSet.expand(arguments, signed);
+        if (files.isEmpty()) {
+            err.println("No files to verify");
+            return 1;
+        }
+        DigitalSignature signature = new DigitalSignature(publicKey, (r, s, hash) -> {
+        });
+        configure(signature, options);
+        SignatureMetrics metrics = options.containsKey("metrics") ? new SignatureMetrics() : null;
+        if (metrics != null) signature.setMetrics(metrics);
+        Report report = new Report(out, isJson(options), "path", "status", "r", "v", "hash", "error");
+        int failed = 0;
+        VerificationCache cache = options.containsKey("cache") ? VerificationCache.open(path(options, "cache")) : null;
+        signature.setVerificationCache(cache);
+        try (cache; Stream<VerificationResult> results = signature.verifyAll(files, options.containsKey("recheck"))) {
+            for (VerificationResult result : (Iterable<VerificationResult>) results::iterator) {
+                Exception error = result.getError();
+                if (error != null) {
+                    report.row(result.getPath(), "error", null, null, null, message(error));
+                } else {
+                    report.row(result.getPath(), result.isValid() ? "valid" : "invalid", result.getR(), result.getV(), result.getHash(), null);
+                }
+                if (!result.isValid()) failed++;
+            }
+        }
+        printMetrics(metrics, options, err);
+        return failed == 0 ? 0 : 1;
+    }
+
+    private static int keygen(Map<String, String> options, PrintStream out) throws IOException, InterruptedException {
+        Path keyFile = path(options, "out");
+        int pBits = number(options, "p-bits", 2048);
+        int qBits = number(options, "q-bits", 256);
+        long start = System.nanoTime();
+        GeneratedParameters generated = new ParameterGenerator(threads(options)).generate(pBits, qBits);
+        long milliseconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        KeyFile.store(keyFile, generated, true);
+        if (options.containsKey("public")) KeyFile.store(path(options, "public"), generated, false);
+        new Report(out, isJson(options), "path", "pBits", "qBits", "milliseconds").row(keyFile, pBits, qBits, milliseconds);
+        return 0;
+    }
+
+    // runs until the process is stopped, keys and tables stay loaded between requests
+    private static int serve(Map<String, String> options, PrintStream out) throws IOException, WrongValueException {
+        KeyFile keyFile = KeyFile.load(path(options, "key"));
+        PrivateKey privateKey = keyFile.hasPrivateKey() ? keyFile.getPrivateKey() : null;
+        PublicKey publicKey = privateKey != null ? privateKey.getPublicKey() : keyFile.getPublicKey();
+        configure(new DigitalSignature(publicKey, (r, s, hash) -> {
+        }), options);
+        int poolCapacity = positive(options, "pool", 256);
+        String token = options.containsKey("port") ? token(path(options, "token")) : null;
+        SigningServer server = new SigningServer(openServer(options), token, privateKey, publicKey, poolCapacity, signature -> configure(signature, options));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        new Report(out, isJson(options), "status", "address").row("listening", server.getAddress());
+        out.flush();
+        server.serve();
+        return 0;
+    }
+
+    // anyone who can connect can sign with the key: the socket is owner-only, TCP needs the token
+    private static ServerSocketChannel openServer(Map<String, String> options) throws IOException {
+        if (!options.containsKey("port")) {
+            Path key = path(options, "key");
+            Path socket = options.containsKey("socket") ? path(options, "socket") : key.resolveSibling(key.getFileName() + ".sock");
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.bind(UnixDomainSocketAddress.of(socket));
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            }
+            return channel;
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), number(options, "port", 0)));
+        return channel;
+    }
+
+    private static String token(Path file) throws IOException {
+        if (Files.exists(file)) {
+            String token = Files.readString(file, StandardCharsets.UTF_8).trim();
+            if (token.isEmpty()) throw new IllegalArgumentException("Empty token file: " + file);
+            return token;
+        }
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        String token = String.format("%064x", new BigInteger(1, bytes));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.writeString(file, token + "\n", StandardCharsets.UTF_8);
+        return token;
+    }
+
+    // the metrics go to the error stream so the output stays one row per file
+    private static void printMetrics(SignatureMetrics metrics, Map<String, String> options, PrintStream err) {
+        if (metrics == null) return;
+        Report report = new Report(err, isJson(options), "metric", "value");
+        metrics.snapshot().forEach(report::row);
+    }
+
+    // runs until the process is stopped; a detached file whose sidecar already verifies is not signed again
+    private static int watch(Map<String, String> options, List<String> arguments, PrintStream out, PrintStream err) throws IOException, WrongValueException {
+        KeyFile keyFile = KeyFile.load(path(options, "key"));
+        PrivateKey privateKey = keyFile.hasPrivateKey() && !options.containsKey("verify-only") ? keyFile.getPrivateKey() : null;
+        PublicKey publicKey = privateKey != null ? privateKey.getPublicKey() : keyFile.getPublicKey();
+        List<Path> roots = new ArrayList<>();
+        for (String argument : arguments) {
+            Path root = Paths.get(argument);
+            if (!Files.isDirectory(root)) throw new IllegalArgumentException("Not a directory: " + argument);
+            roots.add(root);
+        }
+        if (roots.isEmpty()) throw new IllegalArgumentException("No directories to watch");
+        boolean detached = options.containsKey("detached");
+        DigitalSignature verifier = new DigitalSignature(publicKey, (r, s, hash) -> {
+        });
+        configure(verifier, options);
+        NonceSource nonces = privateKey == null ? null : randomNonces(privateKey.getParameters());
+        CheckpointStore checkpoints = checkpoints(options);
+        long debounce = number(options, "debounce", 500);
+        Report report = new Report(out, isJson(options), "path", "status", "r", "s", "v", "hash", "error");
+        Consumer<Path> handler = file -> {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".tmp") || !Files.isRegularFile(file)) return;
+            if (detached ? name.endsWith(DETACHED_SUFFIX) : name.endsWith(SIGNED_SUFFIX)) {
+                Path signed = detached ? file.resolveSibling(name.substring(0, name.length() - DETACHED_SUFFIX.length())) : file;
+                if (Files.isRegularFile(signed)) checkWatched(verifier, signed, report, false);
+            } else if (privateKey != null && !isSignature(file)) {
+                if (detached && Files.isRegularFile(file.resolveSibling(name + DETACHED_SUFFIX)) && checkWatched(verifier, file, report, true)) return;
+                try {
+                    if (!detached && sharesSignedFile(file)) {
+                        report.row(file, "error", null, null, null, null, sharedMessage(file));
+                        return;
+                    }
+                    BigInteger[] result = signFile(privateKey, nonces, options, null, checkpoints, file);
+                    report.row(file, "signed", result[0], result[1], null, result[2], null);
+                } catch (Exception e) {
+                    report.row(file, "error", null, null, null, null, message(e));
+                }
+            }
+        };
+        try (DirectoryWatcher watcher = new DirectoryWatcher(roots, debounce, threads(options), handler,
+                (path, e) -> report.row(path, "error", null, null, null, null, e.toString()))) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+            err.println("Watching " + roots);
+            watcher.run();
+        }
+        return 0;
+    }
+
+    // onlyValid is for the check before signing, where a stale signature is simply replaced
+    private static boolean checkWatched(DigitalSignature verifier, Path file, Report report, boolean onlyValid) {
+        try {
+            BigInteger[] numbers = verifier.checkSignature(file.toFile());
+            boolean valid = numbers[0].equals(numbers[1]);
+            if (valid || !onlyValid) report.row(file, valid ? "valid" : "invalid", numbers[0], null, numbers[1], numbers[2], null);
+            return valid;
+        } catch (Exception e) {
+            if (!onlyValid) report.row(file, "error", null, null, null, null, message(e));
+            return false;
+        }
+    }
+
+    private static String message(Exception e) {
+        if (e instanceof WrongResultException) return "R and S should not be 0";
+        if (e instanceof WrongFileException) return "The File is not Signed";
+        return e.toString();
+    }
+
+    private static void parse(String[] args, Map<String, String> options, List<String> arguments) {
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                arguments.add(args[i]);
+            } else if (FLAGS.contains(args[i].substring(2))) {
+                options.put(args[i].substring(2), "");
+            } else if (i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+        }
+    }
+
+    private static void configure(DigitalSignature signature, Map<String, String> options) {
+        if (options.containsKey("algorithm")) {
+            HashAlgorithm algorithm = HashAlgorithm.forName(options.get("algorithm"), HashAlgorithm.SHA1);
+            if (algorithm == null) throw new IllegalArgumentException("Unknown hash algorithm: " + options.get("algorithm"));
+            signature.setHashAlgorithm(algorithm);
+        }
+        signature.setTreeChunkSize(number(options, "tree", 0));
+        signature.setDetached(options.containsKey("detached"));
+    }
+
+    // only detached SHA-1 signing resumes from checkpoints, a grown file's sidecar is then signed from its new tail
+    private static CheckpointStore checkpoints(Map<String, String> options) throws IOException {
+        if (!options.containsKey("checkpoints")) return null;
+        if (!options.containsKey("detached")) throw new IllegalArgumentException("--checkpoints needs --detached");
+        return new CheckpointStore(path(options, "checkpoints"));
+    }
+
+    // a fresh random k per file, as the main window's fixed k must never sign two files
+    private static NonceSource randomNonces(DomainParameters parameters) {
+        SecureRandom random = new SecureRandom();
+        BigInteger q = parameters.getQ();
+        return () -> {
+            BigInteger k;
+            do {
+                k = new BigInteger(q.bitLength(), random);
+            } while (k.signum() == 0 || k.compareTo(q) >= 0);
+            return Nonce.of(parameters, k);
+        };
+    }
+
+    // copies of a.txt and a.md would both be written to a(signed).txt, so neither of them is signed
+    private static Set<Path> sharingSignedFile(List<Path> files) {
+        Map<Path, Path> signed = new HashMap<>();
+        Set<Path> sharing = new HashSet<>();
+        for (Path file : files) {
+            Path other = signed.putIfAbsent(DigitalSignature.signedFile(file.toAbsolutePath().normalize()), file);
+            if (other != null) {
+                sharing.add(other);
+                sharing.add(file);
+            }
+        }
+        return sharing;
+    }
+
+    private static boolean sharesSignedFile(Path file) throws IOException {
+        Path signed = DigitalSignature.signedFile(file).getFileName();
+        try (Stream<Path> siblings = Files.list(file.toAbsolutePath().getParent())) {
+            return siblings.anyMatch(sibling -> !sibling.getFileName().equals(file.getFileName()) && !isSignature(sibling)
+                    && Files.isRegularFile(sibling) && DigitalSignature.signedFile(sibling).getFileName().equals(signed));
+        }
+    }
+
+    private static String sharedMessage(Path file) {
+        return "Another file is also signed to " + DigitalSignature.signedFile(file).getFileName() + ", use --detached";
+    }
+
+    private static boolean isSignature(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(SIGNED_SUFFIX) || name.endsWith(DETACHED_SUFFIX) || name.endsWith(".tmp") || name.endsWith(".checkpoint");
+    }
+
+    private static boolean isJson(Map<String, String> options) {
+        String format = options.getOrDefault("format", "tsv");
+        if (!format.equals("tsv") && !format.equals("json")) throw new IllegalArgumentException("Unknown format: " + format);
+        return format.equals("json");
+    }
+
+    private static Path path(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) throw new IllegalArgumentException("Missing --" + name);
+        return Paths.get(value);
+    }
+
+    private static int threads(Map<String, String> options) {
+        return positive(options, "threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    private static int positive(Map<String, String> options, String name, int defaultValue) {
+        int number = number(options, name, defaultValue);
+        if (number == 0) throw new IllegalArgumentException("--" + name + " should be positive");
+        return number;
+    }
+
+    private static int number(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) return defaultValue;
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) return number;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("--" + name + " should be a non-negative number");
+    }
+
+}
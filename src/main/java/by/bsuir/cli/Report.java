@@ -0,0 +1,57 @@
+package by.bsuir.cli;
+
+import java.io.PrintStream;
+
+// one line per file, tab separated under a header or one JSON object per line; rows may come from several threads
+final class Report {
+
+    private final PrintStream out;
+
+    private final boolean json;
+
+    private final String[] columns;
+
+    Report(PrintStream out, boolean json, String... columns) {
+        this.out = out;
+        this.json = json;
+        this.columns = columns;
+        if (!json) out.println(String.join("\t", columns));
+    }
+
+    synchronized void row(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            Object value = i < values.length ? values[i] : null;
+            if (json) {
+                line.append(i == 0 ? "{" : ",");
+                quote(line, columns[i]).append(':');
+                if (value == null) {
+                    line.append("null");
+                } else {
+                    quote(line, value.toString());
+                }
+            } else {
+                if (i > 0) line.append('\t');
+                if (value != null) line.append(value.toString().replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+            }
+        }
+        if (json) line.append('}');
+        out.println(line);
+    }
+
+    private static StringBuilder quote(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        return line.append('"');
+    }
+
+}
@@ -0,0 +1,242 @@
+package by.bsuir.cli;
+
+import by.bsuir.signature.DigitalSignature;
+import by.bsuir.signature.NoncePool;
+import by.bsuir.signature.PrivateKey;
+import by.bsuir.signature.PublicKey;
+import by.bsuir.signature.VerificationResult;
+import by.bsuir.signature.exceptions.WrongFileException;
+import by.bsuir.signature.exceptions.WrongResultException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+// one request per line, "sign <path>" or "verify <path>", answered with a tab separated line:
+// "signed r s hash", "valid r v hash", "invalid r v hash" or "error message".
+// With a token, as over TCP, the first line of every connection must be "token <value>", answered with "ok".
+final class SigningServer implements Closeable {
+
+    private static final int BATCH_SIZE = 64;
+
+    private static final int IO_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final ServerSocketChannel server;
+
+    private final SocketAddress address;
+
+    private final PrivateKey privateKey;
+
+    private final PublicKey publicKey;
+
+    private final NoncePool nonces;
+
+    private final Consumer<DigitalSignature> configuration;
+
+    private final byte[] token;
+
+    // Java 17 has no virtual threads, idle connection threads are reused and dropped after a minute
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "signing-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // shared by every batch, so a verify request does not wait for threads to start
+    private final ExecutorService readers = Executors.newFixedThreadPool(IO_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "signing-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BlockingQueue<PendingVerification> verifications = new LinkedBlockingQueue<>();
+
+    private final Thread verifier;
+
+    SigningServer(ServerSocketChannel server, String token, PrivateKey privateKey, PublicKey publicKey, int poolCapacity, Consumer<DigitalSignature> configuration) throws IOException {
+        this.server = server;
+        this.address = server.getLocalAddress();
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        // the pool's producer also builds the generator table, so the first request finds it ready
+        this.nonces = privateKey == null ? null : new NoncePool(privateKey.getParameters(), poolCapacity);
+        this.configuration = configuration;
+        this.token = token == null ? null : token.getBytes(StandardCharsets.UTF_8);
+        this.verifier = new Thread(this::verifyQueued, "signing-verifier");
+        this.verifier.setDaemon(true);
+        this.verifier.start();
+    }
+
+    SocketAddress getAddress() {
+        return address;
+    }
+
+    // blocks until the server is closed
+    void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                connections.execute(() -> handle(channel));
+            }
+        } catch (AsynchronousCloseException e) {
+            // closed by close()
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel;
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+             Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+            if (token != null && !authorize(reader.readLine())) {
+                writer.write("error\tNot authorized\n");
+                writer.flush();
+                return;
+            }
+            if (token != null) {
+                writer.write("ok\n");
+                writer.flush();
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                writer.write(answer(line.trim()));
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // the client went away
+        }
+    }
+
+    private boolean authorize(String line) {
+        if (line == null || !line.startsWith("token ")) return false;
+        return MessageDigest.isEqual(token, line.substring("token ".length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String answer(String request) {
+        int space = request.indexOf(' ');
+        String command = space < 0 ? request : request.substring(0, space);
+        if (!command.equals("sign") && !command.equals("verify")) return "error\tUnknown command: " + command;
+        if (space < 0) return "error\tMissing path";
+        Path path = Paths.get(request.substring(space + 1).trim());
+        return command.equals("sign") ? sign(path) : verify(path);
+    }
+
+    private String sign(Path path) {
+        if (nonces == null) return "error\tThe key file has no private key";
+        BigInteger[] result = new BigInteger[3];
+        DigitalSignature signature = new DigitalSignature(privateKey, nonces, (r, s, hash) -> {
+            result[0] = r;
+            result[1] = s;
+            result[2] = hash;
+        });
+        configuration.accept(signature);
+        try {
+            if (!Files.isRegularFile(path)) throw new NoSuchFileException(path.toString());
+            signature.signFile(path.toFile());
+        } catch (WrongResultException e) {
+            return "error\tR and S should not be 0";
+        } catch (Exception e) {
+            return "error\t" + e;
+        }
+        return "signed\t" + result[0] + "\t" + result[1] + "\t" + result[2];
+    }
+
+    private String verify(Path path) {
+        PendingVerification pending = new PendingVerification(path);
+        verifications.add(pending);
+        VerificationResult result;
+        try {
+            result = pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "error\tServer is closing";
+        } catch (CancellationException e) {
+            return "error\tServer is closing";
+        } catch (ExecutionException e) {
+            return "error\t" + e.getCause();
+        }
+        Exception error = result.getError();
+        if (error != null) return "error\t" + (error instanceof WrongFileException ? "The File is not Signed" : error.toString());
+        return (result.isValid() ? "valid\t" : "invalid\t") + result.getR() + "\t" + result.getV() + "\t" + result.getHash();
+    }
+
+    // requests that arrive while a batch is being verified are verified together in the next one
+    private void verifyQueued() {
+        List<PendingVerification> batch = new ArrayList<>(BATCH_SIZE);
+        DigitalSignature signature = new DigitalSignature(publicKey, (r, s, hash) -> {
+        });
+        configuration.accept(signature);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(verifications.take());
+                verifications.drainTo(batch, BATCH_SIZE - 1);
+                List<Path> paths = new ArrayList<>(batch.size());
+                for (PendingVerification pending : batch) {
+                    paths.add(pending.path);
+                }
+                try {
+                    List<VerificationResult> results = signature.verifyBatch(paths, readers);
+                    for (int i = 0; i < results.size(); i++) {
+                        batch.get(i).result.complete(results.get(i));
+                    }
+                } catch (RuntimeException e) {
+                    batch.forEach(pending -> pending.result.completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        verifications.forEach(pending -> pending.result.cancel(false));
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        verifier.interrupt();
+        connections.shutdownNow();
+        readers.shutdownNow();
+        if (nonces != null) nonces.close();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    private static final class PendingVerification {
+
+        private final Path path;
+
+        private final CompletableFuture<VerificationResult> result = new CompletableFuture<>();
+
+        PendingVerification(Path path) {
+            this.path = path;
+        }
+
+    }
+
+}
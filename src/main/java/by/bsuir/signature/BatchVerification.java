@@ -0,0 +1,179 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+final class BatchVerification implements Iterator<VerificationResult> {
+
+    private static final int IO_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final int MAX_IN_FLIGHT = 4 * IO_THREADS;
+
+    private static final int BATCH_SIZE = 64;
+
+    private final DigitalSignature signature;
+
+    private final boolean forceRecheck;
+
+    private final BlockingQueue<VerificationResult> results = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<SignedFile> hashed = new LinkedBlockingQueue<>();
+
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+
+    private final ExecutorService ioExecutor;
+
+    private final Thread submitter;
+
+    private final Thread verifier;
+
+    private int remaining;
+
+    private BatchVerification(DigitalSignature signature, Collection<Path> files, boolean forceRecheck) {
+        this.signature = signature;
+        this.forceRecheck = forceRecheck;
+        this.remaining = files.size();
+        this.ioExecutor = Executors.newFixedThreadPool(IO_THREADS, daemonThreads("signature-io-"));
+        this.submitter = new Thread(() -> submitAll(files), "signature-submitter");
+        this.submitter.setDaemon(true);
+        this.verifier = new Thread(this::verifyHashed, "signature-verifier");
+        this.verifier.setDaemon(true);
+    }
+
+    static Stream<VerificationResult> verifyAll(DigitalSignature signature, Collection<Path> files, boolean forceRecheck) {
+        BatchVerification batch = new BatchVerification(signature, files, forceRecheck);
+        batch.submitter.start();
+        batch.verifier.start();
+        return StreamSupport.stream(Spliterators.spliterator(batch, files.size(), Spliterator.NONNULL), false)
+                .onClose(batch::close);
+    }
+
+    // for callers that gather their own batches: the files are read on ioExecutor and the call returns when all are verified
+    static List<VerificationResult> verifyBatch(DigitalSignature signature, List<Path> files, boolean forceRecheck, Executor ioExecutor) {
+        List<CompletableFuture<SignedFile>> reads = new ArrayList<>(files.size());
+        for (Path path : files) {
+            reads.add(CompletableFuture.supplyAsync(() -> read(signature, path, forceRecheck), ioExecutor));
+        }
+        VerificationResult[] results = new VerificationResult[files.size()];
+        List<SignedFile> signedFiles = new ArrayList<>(files.size());
+        List<Integer> indices = new ArrayList<>(files.size());
+        for (int i = 0; i < results.length; i++) {
+            try {
+                signedFiles.add(reads.get(i).join());
+                indices.add(i);
+            } catch (CompletionException | CancellationException e) {
+                results[i] = failed(files.get(i), e);
+            }
+        }
+        try {
+            BigInteger[] vs = signature.verifyAll(signedFiles);
+            for (int i = 0; i < vs.length; i++) {
+                SignedFile signedFile = signedFiles.get(i);
+                results[indices.get(i)] = new VerificationResult(signedFile.getPath(), signedFile.getR(), vs[i], signedFile.getHash());
+            }
+        } catch (RuntimeException e) {
+            for (int i : indices) {
+                results[i] = failed(files.get(i), e);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void submitAll(Collection<Path> files) {
+        try {
+            for (Path path : files) {
+                inFlight.acquire();
+                CompletableFuture.supplyAsync(() -> read(signature, path, forceRecheck), ioExecutor)
+                        .whenComplete((signedFile, error) -> {
+                            if (signedFile != null) {
+                                hashed.add(signedFile);
+                            } else {
+                                results.add(failed(path, error));
+                            }
+                        });
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // s values of a batch are inverted together, the exponentiations run on the common pool
+    private void verifyHashed() {
+        List<SignedFile> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(hashed.take());
+                hashed.drainTo(batch, BATCH_SIZE - 1);
+                try {
+                    BigInteger[] vs = signature.verifyAll(batch);
+                    for (int i = 0; i < vs.length; i++) {
+                        SignedFile signedFile = batch.get(i);
+                        results.add(new VerificationResult(signedFile.getPath(), signedFile.getR(), vs[i], signedFile.getHash()));
+                    }
+                } catch (RuntimeException e) {
+                    for (SignedFile signedFile : batch) {
+                        results.add(failed(signedFile.getPath(), e));
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SignedFile read(DigitalSignature signature, Path path, boolean forceRecheck) {
+        try {
+            return signature.readSignedFile(path, forceRecheck);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static VerificationResult failed(Path path, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return new VerificationResult(path, cause instanceof Exception ? (Exception) cause : new ExecutionException(cause));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (remaining == 0) close();
+        return remaining > 0;
+    }
+
+    @Override
+    public VerificationResult next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        try {
+            VerificationResult result = results.take();
+            remaining--;
+            inFlight.release();
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CancellationException();
+        }
+    }
+
+    private void close() {
+        submitter.interrupt();
+        verifier.interrupt();
+        ioExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
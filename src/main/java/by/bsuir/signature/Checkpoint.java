@@ -0,0 +1,52 @@
+package by.bsuir.signature;
+
+// a SHA1 midstate after the first offset bytes of a file, with the guard that tells whether those bytes are still the same
+// and the file's size and modification time when it was taken
+final class Checkpoint {
+
+    private final long offset;
+
+    private final byte[] midstate;
+
+    private final byte[] guard;
+
+    private final String fileKey;
+
+    private final long size;
+
+    private final long modified;
+
+    Checkpoint(long offset, byte[] midstate, byte[] guard, String fileKey, long size, long modified) {
+        this.offset = offset;
+        this.midstate = midstate;
+        this.guard = guard;
+        this.fileKey = fileKey;
+        this.size = size;
+        this.modified = modified;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    byte[] getMidstate() {
+        return midstate;
+    }
+
+    byte[] getGuard() {
+        return guard;
+    }
+
+    String getFileKey() {
+        return fileKey;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getModified() {
+        return modified;
+    }
+
+}
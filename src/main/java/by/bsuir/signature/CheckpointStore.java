@@ -0,0 +1,157 @@
+package by.bsuir.signature;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// One small file per checkpointed path, named after the SHA-256 of the path: "DSCP" | version | offset (8) |
+// SHA1 midstate (28) | guard (32) | size (8) | modification time in ns (8) | file key length (2) | file key.
+// The guard is a SHA-256 of the first HEAD_SIZE and the last TAIL_SIZE bytes before the offset, so an appended
+// file resumes while a replaced or rewritten one is hashed from the start, as is a file whose size or modification
+// time went backwards. Bytes changed in the middle of a long prefix without either are not noticed; the signature
+// made then fails verification, which always hashes the whole file. Whoever can write the directory can make the
+// signer sign a prefix it never read, so it is created owner-only and one writable by others is refused.
+public final class CheckpointStore {
+
+    private static final int MAGIC = 0x44534350;
+
+    private static final byte VERSION = 2;
+
+    private static final int GUARD_LENGTH = 32;
+
+    private static final int HEAD_SIZE = 4 * 1024;
+
+    private static final int TAIL_SIZE = 64 * 1024;
+
+    private static final int HEADER_SIZE = 4 + 1 + 8 + SHA1.MIDSTATE_LENGTH + GUARD_LENGTH + 8 + 8 + 2;
+
+    private static final int MAX_SIZE = HEADER_SIZE + 0xFFFF;
+
+    private final Path directory;
+
+    public CheckpointStore(Path directory) throws IOException {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            this.directory = Files.createDirectories(directory);
+            return;
+        }
+        if (!Files.isDirectory(directory)) {
+            Path parent = directory.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+        if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+            throw new IOException("Checkpoint directory is writable by others: " + directory);
+        }
+        this.directory = directory;
+    }
+
+    public void remove(Path file) throws IOException {
+        Files.deleteIfExists(entry(file));
+    }
+
+    // the checkpoint of the file if its prefix still matches the guard, otherwise null
+    Checkpoint load(Path file, FileChannel channel) throws IOException {
+        Path entry = entry(file);
+        if (!Files.isRegularFile(entry) || Files.size(entry) > MAX_SIZE) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(entry));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) return null;
+            long offset = buffer.getLong();
+            byte[] midstate = new byte[SHA1.MIDSTATE_LENGTH];
+            buffer.get(midstate);
+            byte[] guard = new byte[GUARD_LENGTH];
+            buffer.get(guard);
+            long size = buffer.getLong();
+            long modified = buffer.getLong();
+            byte[] fileKey = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(fileKey);
+            Checkpoint checkpoint = new Checkpoint(offset, midstate, guard, new String(fileKey, StandardCharsets.UTF_8), size, modified);
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            // the midstate must describe exactly the guarded prefix
+            if (offset <= 0 || offset > channel.size() || ByteBuffer.wrap(midstate, 20, 8).getLong() != offset) return null;
+            if (!checkpoint.getFileKey().equals(String.valueOf(attributes.fileKey()))) return null;
+            // a file that shrank or went back in time was rewritten, not appended to
+            if (attributes.size() < size || attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) < modified) return null;
+            return MessageDigest.isEqual(guard, guard(channel, offset)) ? checkpoint : null;
+        } catch (RuntimeException e) {
+            // a truncated or foreign entry is ignored like a missing one
+            return null;
+        }
+    }
+
+    void save(Path file, FileChannel channel, long offset, byte[] midstate) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        byte[] fileKey = String.valueOf(attributes.fileKey()).getBytes(StandardCharsets.UTF_8);
+        if (fileKey.length > 0xFFFF) return;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + fileKey.length)
+                .putInt(MAGIC)
+                .put(VERSION)
+                .putLong(offset)
+                .put(midstate)
+                .put(guard(channel, offset))
+                .putLong(attributes.size())
+                .putLong(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS))
+                .putShort((short) fileKey.length)
+                .put(fileKey);
+        Path entry = entry(file);
+        Path tempFile = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, buffer.array());
+            try {
+                Files.move(tempFile, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private Path entry(Path file) {
+        byte[] name = sha256().digest(file.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(String.format("%064x", new BigInteger(1, name)) + ".checkpoint");
+    }
+
+    private static byte[] guard(FileChannel channel, long offset) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(ByteBuffer.allocate(8).putLong(offset).array());
+        int head = (int) Math.min(HEAD_SIZE, offset);
+        long tailStart = Math.max(head, offset - TAIL_SIZE);
+        update(digest, channel, 0, head);
+        update(digest, channel, tailStart, (int) (offset - tailStart));
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("File is shorter than its checkpoint");
+        }
+        digest.update(buffer.flip());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
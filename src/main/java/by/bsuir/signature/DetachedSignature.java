@@ -0,0 +1,109 @@
+package by.bsuir.signature;
+
+import by.bsuir.signature.exceptions.WrongFileException;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+// "DSIG" | version | algorithm id | field width (2) | tree chunk size (4) | parameter fingerprint (32) | r | s,
+// multi-byte values are big-endian and r, s are left-padded to the field width, the byte length of q
+final class DetachedSignature {
+
+    static final String EXTENSION = ".sig";
+
+    private static final int MAGIC = 0x44534947;
+
+    private static final byte VERSION = 1;
+
+    private static final int FINGERPRINT_SIZE = 32;
+
+    private static final int HEADER_SIZE = 4 + 1 + 1 + 2 + 4 + FINGERPRINT_SIZE;
+
+    static final int MAX_SIZE = HEADER_SIZE + 2 * 0xFFFF;
+
+    private final HashAlgorithm algorithm;
+
+    private final int treeChunkSize;
+
+    private final BigInteger r;
+
+    private final BigInteger s;
+
+    DetachedSignature(HashAlgorithm algorithm, int treeChunkSize, BigInteger r, BigInteger s) {
+        this.algorithm = algorithm;
+        this.treeChunkSize = treeChunkSize;
+        this.r = r;
+        this.s = s;
+    }
+
+    static Path sidecar(Path file) {
+        return file.resolveSibling(file.getFileName().toString() + EXTENSION);
+    }
+
+    HashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    int getTreeChunkSize() {
+        return treeChunkSize;
+    }
+
+    BigInteger getR() {
+        return r;
+    }
+
+    BigInteger getS() {
+        return s;
+    }
+
+    ByteBuffer encode(DomainParameters parameters) {
+        int width = fieldWidth(parameters.getQ());
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * width);
+        buffer.putInt(MAGIC)
+                .put(VERSION)
+                .put((byte) algorithm.getId())
+                .putShort((short) width)
+                .putInt(treeChunkSize)
+                .put(parameters.fingerprint());
+        putFixed(buffer, r, width);
+        putFixed(buffer, s, width);
+        return buffer.flip();
+    }
+
+    static DetachedSignature decode(ByteBuffer buffer, DomainParameters parameters, HashAlgorithm preferred) throws WrongFileException {
+        int width = fieldWidth(parameters.getQ());
+        if (buffer.remaining() != HEADER_SIZE + 2 * width) throw new WrongFileException();
+        if (buffer.getInt() != MAGIC || buffer.get() != VERSION) throw new WrongFileException();
+        HashAlgorithm algorithm = HashAlgorithm.forId(buffer.get(), preferred);
+        int storedWidth = Short.toUnsignedInt(buffer.getShort());
+        int treeChunkSize = buffer.getInt();
+        byte[] fingerprint = new byte[FINGERPRINT_SIZE];
+        buffer.get(fingerprint);
+        // a signature made with other parameters is rejected before any hashing is done
+        if (algorithm == null || storedWidth != width || !TreeHash.isValidChunkSize(treeChunkSize)
+                || !MessageDigest.isEqual(fingerprint, parameters.fingerprint())) throw new WrongFileException();
+        return new DetachedSignature(algorithm, treeChunkSize, getFixed(buffer, width), getFixed(buffer, width));
+    }
+
+    private static int fieldWidth(BigInteger q) {
+        return (q.bitLength() + 7) / 8;
+    }
+
+    private static void putFixed(ByteBuffer buffer, BigInteger value, int width) {
+        byte[] bytes = value.toByteArray();
+        int copy = Math.min(bytes.length, width);
+        for (int i = copy; i < width; i++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put(bytes, bytes.length - copy, copy);
+    }
+
+    private static BigInteger getFixed(ByteBuffer buffer, int width) {
+        byte[] bytes = new byte[width];
+        buffer.get(bytes);
+        return new BigInteger(1, bytes);
+    }
+
+}
@@ -2,131 +2,578 @@ package by.bsuir.signature;
 
 import by.bsuir.signature.exceptions.WrongFileException;
 import by.bsuir.signature.exceptions.WrongResultException;
-import by.bsuir.signature.exceptions.WrongValueException;
 
 import java.io.*;
 import java.math.BigInteger;
-import java.util.Random;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class DigitalSignature {
 
-    private final BigInteger q;
+    private final PrivateKey privateKey;
 
-    private final BigInteger p;
+    private final PublicKey publicKey;
 
-    private final BigInteger h;
+    private final NonceSource nonceSource;
 
-    private final BigInteger x;
+    private final Listener listener;
 
-    private final BigInteger k;
+    private HashAlgorithm hashAlgorithm = HashAlgorithm.SHA1;
 
-    private final Listener listener;
+    private int treeChunkSize;
+
+    private boolean detached;
+
+    private Metrics metrics = Metrics.NONE;
+
+    private VerificationCache verificationCache;
+
+    private CheckpointStore checkpointStore;
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final String TREE_PREFIX = "tree:";
+
+    private static final int TAIL_BUFFER_SIZE = 8 * 1024;
+
+    private static final long MAPPING_THRESHOLD = 64L * 1024 * 1024;
 
-    private static final BigInteger THREE = new BigInteger("3");
+    private static final long MAPPING_WINDOW = 256L * 1024 * 1024;
 
-    public DigitalSignature(BigInteger q, BigInteger p, BigInteger h, BigInteger x, BigInteger k, Listener listener) {
-        this.q = q;
-        this.p = p;
-        this.h = h;
-        this.x = x;
-        this.k = k;
+    public DigitalSignature(PrivateKey privateKey, BigInteger k, Listener listener) {
+        Nonce nonce = Nonce.of(privateKey.getParameters(), k);
+        this.privateKey = privateKey;
+        this.publicKey = privateKey.getPublicKey();
+        this.nonceSource = () -> nonce;
         this.listener = listener;
     }
 
-    public void signFile(File fileToSign) throws WrongValueException, WrongResultException {
-        BigInteger g = powByMod(h, p.subtract(BigInteger.ONE).divide(q), p);
-        if (g.min(BigInteger.ONE).equals(g)) throw new WrongValueException();
-        BigInteger hash = fileHash(fileToSign, false);
-        BigInteger r = powByMod(g, k, p).mod(q);
-        BigInteger s = hash.add(x.multiply(r)).multiply(k.modPow(q.subtract(BigInteger.TWO), q)).mod(q);
-        if (r.signum() == 0 || s.signum() == 0) throw new WrongResultException();
-        rewriteFile(r, s, fileToSign);
-        listener.showSign(r, s, hash);
-    }
-
-    public BigInteger[] checkSignature(File fileToCheck) throws WrongFileException {
-        BigInteger g = powByMod(h, p.subtract(BigInteger.ONE).divide(q), p);
-        BigInteger y = powByMod(g, x, p);
-        try (BufferedReader br = new BufferedReader(new FileReader(fileToCheck))) {
-            String line;
-            String lastLine = null;
-            while ((line = br.readLine()) != null) {
-                lastLine = line;
-            }
-            if (lastLine != null) {
-                String[] numbers;
-                BigInteger r;
-                BigInteger s;
-                try {
-                    numbers = lastLine.split(",");
-                    r = new BigInteger(numbers[0]);
-                    s = new BigInteger(numbers[1]);
-                } catch (Exception e) {
-                    throw new WrongFileException();
+    public DigitalSignature(PrivateKey privateKey, NonceSource nonceSource, Listener listener) {
+        this.privateKey = privateKey;
+        this.publicKey = privateKey.getPublicKey();
+        this.nonceSource = nonceSource;
+        this.listener = listener;
+    }
+
+    public DigitalSignature(PublicKey publicKey, Listener listener) {
+        this.privateKey = null;
+        this.publicKey = publicKey;
+        this.nonceSource = null;
+        this.listener = listener;
+    }
+
+    public void signFile(File fileToSign) throws WrongResultException, IOException {
+        if (privateKey == null) throw new IllegalStateException("Private key is required for signing");
+        long started = clock();
+        SignatureEvents.Sign signEvent = new SignatureEvents.Sign();
+        signEvent.begin();
+        BigInteger q = privateKey.getParameters().getQ();
+        BigInteger x = privateKey.getX();
+        Nonce nonce = nonceSource.next();
+        BigInteger r = nonce.getR();
+        if (r.signum() == 0) throw new WrongResultException();
+        BigInteger kInverse = nonce.getKInverse();
+        Path signedFile = detached ? DetachedSignature.sidecar(fileToSign.toPath()) : signedFile(fileToSign.toPath());
+        Path tempFile = null;
+        try {
+            // the rewrite event spans the temp file's life, rewriteNanos only the writes, which overlap hashing in copy mode
+            SignatureEvents.Rewrite rewriteEvent = new SignatureEvents.Rewrite();
+            rewriteEvent.begin();
+            long[] rewriteNanos = {0};
+            long written;
+            tempFile = createTempFile(signedFile);
+            BigInteger hash;
+            BigInteger s;
+            try (FileChannel in = FileChannel.open(fileToSign.toPath(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tempFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                SignatureEvents.Hash hashEvent = new SignatureEvents.Hash();
+                hashEvent.begin();
+                if (detached) {
+                    // the input is only read, the signature goes to a small sidecar
+                    if (treeChunkSize > 0) hash = treeHash(in, in.size(), hashAlgorithm, treeChunkSize, q);
+                    else if (checkpointStore != null && hashAlgorithm == HashAlgorithm.SHA1) hash = resumableHash(fileToSign.toPath(), in, q);
+                    else hash = fileHash(in, in.size(), hashAlgorithm, q);
+                } else if (treeChunkSize > 0) {
+                    // hashing the copy rather than the input signs exactly the bytes that were written
+                    long start = clock();
+                    copy(in, out);
+                    rewriteNanos[0] += elapsed(start);
+                    hash = treeHash(out, out.size(), hashAlgorithm, treeChunkSize, q);
+                } else {
+                    hash = copyAndHash(in, out, q, rewriteNanos);
+                }
+                commit(hashEvent, fileToSign.toPath(), hashAlgorithm, in.size(), treeChunkSize);
+                s = hash.add(x.multiply(r)).multiply(kInverse).mod(q);
+                if (s.signum() == 0) throw new WrongResultException();
+                progress(Listener.Phase.WRITING, 0, -1);
+                long start = clock();
+                if (detached) {
+                    writeFully(out, new DetachedSignature(hashAlgorithm, treeChunkSize, r, s).encode(privateKey.getParameters()));
+                } else {
+                    writeFully(out, ByteBuffer.wrap(("\n" + trailer(r, s)).getBytes(StandardCharsets.US_ASCII)));
                 }
-                BigInteger w = powByMod(s, q.subtract(BigInteger.TWO), q);
-                BigInteger hash = fileHash(fileToCheck, true);
-                BigInteger u1 = hash.multiply(w).mod(q);
-                BigInteger u2 = r.multiply(w).mod(q);
-                BigInteger v = powByMod(g, u1, p).multiply(powByMod(y, u2, p)).mod(p).mod(q);
-                return new BigInteger[]{r, v, hash};
+                out.force(false);
+                written = out.size();
+                rewriteNanos[0] += elapsed(start);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            long start = clock();
+            moveAtomically(tempFile, signedFile);
+            tempFile = null;
+            metrics.rewritten(written, rewriteNanos[0] + elapsed(start));
+            rewriteEvent.end();
+            if (rewriteEvent.shouldCommit()) {
+                rewriteEvent.path = signedFile.toString();
+                rewriteEvent.bytes = written;
+                rewriteEvent.detached = detached;
+                rewriteEvent.commit();
+            }
+            listener.showSign(r, s, hash);
+            metrics.signed(elapsed(started));
+            signEvent.end();
+            if (signEvent.shouldCommit()) {
+                signEvent.path = fileToSign.getPath();
+                signEvent.commit();
+            }
+        } catch (ClosedByInterruptException e) {
+            throw new CancellationException();
+        } finally {
+            deleteTempFile(tempFile);
         }
-        return new BigInteger[0];
     }
 
-    private void rewriteFile(BigInteger r, BigInteger s, File file) {
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(file));
-             DataOutputStream dos = new DataOutputStream(new FileOutputStream(getSignedFile(file)))) {
-            byte[] b = new byte[1024 * 1024];
-            int count;
-            do {
-                count = dis.read(b);
-                if (count > 0) {
-                    dos.write(b, 0, count);
-                }
-            } while (dis.available() != 0);
-        } catch (IOException e) {
-            e.printStackTrace();
+    public BigInteger[] checkSignature(File fileToCheck) throws WrongFileException, IOException {
+        return checkSignature(fileToCheck, false);
+    }
+
+    // forceRecheck hashes the file even when the verification cache knows it, and refreshes the cache
+    public BigInteger[] checkSignature(File fileToCheck, boolean forceRecheck) throws WrongFileException, IOException {
+        long started = clock();
+        SignatureEvents.Verify verifyEvent = new SignatureEvents.Verify();
+        verifyEvent.begin();
+        try {
+            SignedFile signedFile = readSignedFile(fileToCheck.toPath(), forceRecheck);
+            progress(Listener.Phase.VERIFYING, 0, -1);
+            BigInteger v = signedFile.isCached() ? signedFile.getR() : verify(signedFile.getR(), signedFile.getS(), signedFile.getHash());
+            remember(signedFile, v);
+            metrics.verified(elapsed(started));
+            verifyEvent.end();
+            if (verifyEvent.shouldCommit()) {
+                verifyEvent.path = fileToCheck.getPath();
+                verifyEvent.valid = v.equals(signedFile.getR());
+                verifyEvent.commit();
+            }
+            return new BigInteger[]{signedFile.getR(), v, signedFile.getHash()};
+        } catch (ClosedByInterruptException e) {
+            throw new CancellationException();
         }
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(getSignedFile(file), true))) {
-            bw.write("\n" + r.toString() + "," + s.toString());
-        } catch (IOException e) {
-            e.printStackTrace();
+    }
+
+    public Stream<VerificationResult> verifyAll(Collection<Path> filesToCheck) {
+        return verifyAll(filesToCheck, false);
+    }
+
+    public Stream<VerificationResult> verifyAll(Collection<Path> filesToCheck, boolean forceRecheck) {
+        return BatchVerification.verifyAll(this, filesToCheck, forceRecheck);
+    }
+
+    // one batch, read on the caller's executor instead of threads started for the call; results are in input order
+    public List<VerificationResult> verifyBatch(List<Path> filesToCheck, Executor ioExecutor) {
+        return BatchVerification.verifyBatch(this, filesToCheck, false, ioExecutor);
+    }
+
+    // the cache key is taken before the file is read, so a file changed while it was hashed is never remembered as valid
+    SignedFile readSignedFile(Path fileToCheck, boolean forceRecheck) throws IOException, WrongFileException {
+        byte[] cacheKey = verificationCache == null ? null : VerificationCache.key(fileToCheck, publicKey, detached);
+        if (cacheKey != null && !forceRecheck) {
+            BigInteger[] cached = verificationCache.lookup(cacheKey);
+            if (cached != null) return new SignedFile(fileToCheck, cached[0], null, cached[1], cacheKey, true);
+        }
+        SignedFile signedFile = detached ? readDetachedFile(fileToCheck) : readSignedCopy(fileToCheck);
+        return cacheKey == null ? signedFile : new SignedFile(fileToCheck, signedFile.getR(), signedFile.getS(), signedFile.getHash(), cacheKey, false);
+    }
+
+    private SignedFile readSignedCopy(Path fileToCheck) throws IOException, WrongFileException {
+        try (FileChannel channel = FileChannel.open(fileToCheck, StandardOpenOption.READ)) {
+            long trailerOffset = lastLineOffset(channel);
+            String lastLine = readTrailer(channel, trailerOffset);
+            BigInteger r;
+            BigInteger s;
+            String[] numbers = lastLine.trim().split(",");
+            try {
+                r = new BigInteger(numbers[0]);
+                s = new BigInteger(numbers[1]);
+            } catch (Exception e) {
+                throw new WrongFileException();
+            }
+            HashAlgorithm algorithm = null;
+            int chunkSize = 0;
+            if (numbers.length == 2) {
+                algorithm = HashAlgorithm.forName("SHA-1", hashAlgorithm);
+            } else if (numbers.length == 3 || numbers.length == 4) {
+                algorithm = HashAlgorithm.forName(numbers[2], hashAlgorithm);
+            }
+            if (numbers.length == 4) {
+                chunkSize = parseTreeChunkSize(numbers[3]);
+            }
+            if (algorithm == null) throw new WrongFileException();
+            return hashSignedFile(fileToCheck, channel, Math.max(trailerOffset, 0), algorithm, chunkSize, r, s);
         }
     }
 
-    private File getSignedFile(File file) {
-        String path = file.getAbsolutePath();
-        String pathToSignedFile = path.substring(0, path.lastIndexOf('.'));
-        pathToSignedFile = pathToSignedFile.concat("(signed).txt");
-        return new File(pathToSignedFile);
+    // the file to check is the original, its signature is read from the .sig file next to it
+    private SignedFile readDetachedFile(Path fileToCheck) throws IOException, WrongFileException {
+        Path sidecar = DetachedSignature.sidecar(fileToCheck);
+        if (!Files.isRegularFile(sidecar) || Files.size(sidecar) > DetachedSignature.MAX_SIZE) throw new WrongFileException();
+        DetachedSignature signature = DetachedSignature.decode(ByteBuffer.wrap(Files.readAllBytes(sidecar)), publicKey.getParameters(), hashAlgorithm);
+        try (FileChannel channel = FileChannel.open(fileToCheck, StandardOpenOption.READ)) {
+            return hashSignedFile(fileToCheck, channel, channel.size(), signature.getAlgorithm(), signature.getTreeChunkSize(), signature.getR(), signature.getS());
+        }
     }
 
-    private BigInteger fileHash(File file, boolean isSigned) {
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
-            byte[] bytes = new byte[(int) file.length()];
-            int count = dis.read(bytes);
-            if (isSigned) {
-                int temp = count;
-                for (int i = count - 1; i >= 0; i--) {
-                    if (bytes[i] == '\n') {
-                        count = i;
-                        break;
-                    }
-                }
-                if (temp == count) count = 0;
+    private SignedFile hashSignedFile(Path path, FileChannel channel, long count, HashAlgorithm algorithm, int chunkSize, BigInteger r, BigInteger s) throws IOException, WrongFileException {
+        BigInteger q = publicKey.getParameters().getQ();
+        if (r.signum() <= 0 || r.compareTo(q) >= 0 || s.signum() <= 0 || s.compareTo(q) >= 0)
+            throw new WrongFileException();
+        // checked before any hashing, the chunk size comes from the unsigned trailer or sidecar
+        if (chunkSize > 0 && !TreeHash.fits(count, chunkSize)) throw new WrongFileException();
+        SignatureEvents.Hash hashEvent = new SignatureEvents.Hash();
+        hashEvent.begin();
+        BigInteger hash = chunkSize > 0 ? treeHash(channel, count, algorithm, chunkSize, q) : fileHash(channel, count, algorithm, q);
+        commit(hashEvent, path, algorithm, count, chunkSize);
+        return new SignedFile(path, r, s, hash);
+    }
+
+    BigInteger verify(BigInteger r, BigInteger s, BigInteger hash) {
+        return verifyWithInverse(r, ModularInverse.inverse(s, publicKey.getParameters().getQ()), hash);
+    }
+
+    // files confirmed by the cache keep v = r and take no part in the inversion
+    BigInteger[] verifyAll(List<SignedFile> signedFiles) {
+        BigInteger[] vs = new BigInteger[signedFiles.size()];
+        int[] pending = IntStream.range(0, vs.length).filter(i -> !signedFiles.get(i).isCached()).toArray();
+        BigInteger[] ss = new BigInteger[pending.length];
+        for (int i = 0; i < pending.length; i++) {
+            ss[i] = signedFiles.get(pending[i]).getS();
+        }
+        BigInteger[] ws = ModularInverse.inverseAll(ss, publicKey.getParameters().getQ());
+        IntStream.range(0, pending.length).parallel().forEach(i -> {
+            SignedFile signedFile = signedFiles.get(pending[i]);
+            vs[pending[i]] = verifyWithInverse(signedFile.getR(), ws[i], signedFile.getHash());
+        });
+        for (int i = 0; i < vs.length; i++) {
+            SignedFile signedFile = signedFiles.get(i);
+            if (signedFile.isCached()) vs[i] = signedFile.getR();
+            remember(signedFile, vs[i]);
+        }
+        return vs;
+    }
+
+    private void remember(SignedFile signedFile, BigInteger v) {
+        if (verificationCache == null || signedFile.getCacheKey() == null || signedFile.isCached()) return;
+        if (v.equals(signedFile.getR())) {
+            verificationCache.store(signedFile.getCacheKey(), signedFile.getR(), signedFile.getHash());
+        } else {
+            verificationCache.remove(signedFile.getCacheKey());
+        }
+    }
+
+    private BigInteger verifyWithInverse(BigInteger r, BigInteger w, BigInteger hash) {
+        DomainParameters parameters = publicKey.getParameters();
+        BigInteger q = parameters.getQ();
+        BigInteger u1 = hash.multiply(w).mod(q);
+        BigInteger u2 = r.multiply(w).mod(q);
+        long start = clock();
+        SignatureEvents.ModExp event = new SignatureEvents.ModExp();
+        event.begin();
+        BigInteger v = MultiExponentiation.powProduct(parameters.getG(), u1, publicKey.getY(), u2, parameters.getMontgomery()).mod(q);
+        metrics.modExp(elapsed(start));
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "verify";
+            event.modulusBits = parameters.getP().bitLength();
+            event.commit();
+        }
+        return v;
+    }
+
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    public void setHashAlgorithm(HashAlgorithm hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+    }
+
+    public int getTreeChunkSize() {
+        return treeChunkSize;
+    }
+
+    // 0 hashes the file as one chain, a positive size signs the root of a tree of chunks hashed in parallel
+    public void setTreeChunkSize(int treeChunkSize) {
+        if (!TreeHash.isValidChunkSize(treeChunkSize)) throw new IllegalArgumentException("Chunk size should be 0 or at least " + TreeHash.MIN_CHUNK_SIZE);
+        this.treeChunkSize = treeChunkSize;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    // Metrics.NONE, the default, leaves only the JFR events, which cost nothing unless a recording enables them
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public VerificationCache getVerificationCache() {
+        return verificationCache;
+    }
+
+    // null, the default, hashes every file on every check
+    public void setVerificationCache(VerificationCache verificationCache) {
+        this.verificationCache = verificationCache;
+    }
+
+    public CheckpointStore getCheckpointStore() {
+        return checkpointStore;
+    }
+
+    // with detached SHA-1 signing, re-signing a file that only grew hashes just the appended bytes
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    // detached signing leaves the file untouched and writes r and s to "<file>.sig", checking then takes the original file
+    public void setDetached(boolean detached) {
+        this.detached = detached;
+    }
+
+    // SHA-1 keeps the original "r,s" line, other algorithms are named after s, tree hashing adds "tree:<chunk size>"
+    private String trailer(BigInteger r, BigInteger s) {
+        String trailer = r.toString() + "," + s.toString();
+        if (treeChunkSize > 0) return trailer + "," + hashAlgorithm.getName() + "," + TREE_PREFIX + treeChunkSize;
+        return hashAlgorithm.getName().equals("SHA-1") ? trailer : trailer + "," + hashAlgorithm.getName();
+    }
+
+    private int parseTreeChunkSize(String mode) throws WrongFileException {
+        try {
+            if (mode.startsWith(TREE_PREFIX)) {
+                int chunkSize = Integer.parseInt(mode.substring(TREE_PREFIX.length()));
+                if (chunkSize > 0 && TreeHash.isValidChunkSize(chunkSize)) return chunkSize;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new WrongFileException();
+    }
+
+    private void copy(FileChannel in, FileChannel out) throws IOException {
+        long size = in.size();
+        for (long position = 0; position < size; ) {
+            position += in.transferTo(position, size - position, out);
+        }
+    }
+
+    private long clock() {
+        return metrics == Metrics.NONE ? 0 : System.nanoTime();
+    }
+
+    private long elapsed(long start) {
+        return metrics == Metrics.NONE ? 0 : System.nanoTime() - start;
+    }
+
+    private HashFunction newFunction(HashAlgorithm algorithm) {
+        HashFunction function = algorithm.newFunction();
+        return metrics == Metrics.NONE ? function : new InstrumentedHash(function, algorithm.getName(), metrics);
+    }
+
+    private static void commit(SignatureEvents.Hash event, Path path, HashAlgorithm algorithm, long bytes, int treeChunkSize) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.algorithm = algorithm.getName();
+            event.bytes = bytes;
+            event.treeChunkSize = treeChunkSize;
+            event.commit();
+        }
+    }
+
+    // interrupting the working thread cancels signing or checking at the next buffer
+    private void progress(Listener.Phase phase, long bytesDone, long total) {
+        if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+        listener.showProgress(phase, bytesDone, total);
+    }
+
+    private BigInteger treeHash(FileChannel channel, long count, HashAlgorithm algorithm, int chunkSize, BigInteger q) throws IOException {
+        Thread caller = Thread.currentThread();
+        AtomicLong done = new AtomicLong();
+        return TreeHash.hash(channel, count, algorithm, () -> newFunction(algorithm), chunkSize, q, size -> {
+            if (caller.isInterrupted()) throw new CancellationException();
+            listener.showProgress(Listener.Phase.HASHING, done.addAndGet(size), count);
+        });
+    }
+
+    private BigInteger copyAndHash(FileChannel in, FileChannel out, BigInteger q, long[] rewriteNanos) throws IOException {
+        HashFunction function = newFunction(hashAlgorithm);
+        long size = in.size();
+        if (size >= MAPPING_THRESHOLD) {
+            for (long position = 0; position < size; position += MAPPING_WINDOW) {
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_WINDOW, size - position));
+                function.update(window.duplicate());
+                long start = clock();
+                writeFully(out, window);
+                rewriteNanos[0] += elapsed(start);
+                progress(Listener.Phase.HASHING, position + window.capacity(), size);
             }
-            SHA1 sha1 = new SHA1();
-            byte[] message = new byte[count];
-            System.arraycopy(bytes, 0, message, 0, count);
-            return sha1.sha1(message);
+        } else {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long done = 0;
+            while (true) {
+                long start = clock();
+                int read = in.read(buffer);
+                if (read < 0) break;
+                metrics.read(read, elapsed(start));
+                buffer.flip();
+                done += buffer.remaining();
+                function.update(buffer.duplicate());
+                start = clock();
+                writeFully(out, buffer);
+                rewriteNanos[0] += elapsed(start);
+                buffer.clear();
+                progress(Listener.Phase.HASHING, done, size);
+            }
+        }
+        return hashAlgorithm.toInteger(function.digest(), function.digestLength(), q);
+    }
+
+    private void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    // unlike Files.createTempFile, which makes the file owner-only, the permissions follow the umask
+    // as they did when the signed file was written directly
+    private static Path createTempFile(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        while (true) {
+            String name = target.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp";
+            try {
+                return Files.createFile(directory.resolve(name));
+            } catch (FileAlreadyExistsException e) {
+                // taken, try another name
+            }
+        }
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        if (tempFile == null) return;
+        try {
+            Files.deleteIfExists(tempFile);
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return null;
+    }
+
+    // the copy sits next to the file with its extension, if any, replaced, so a.txt and a.md share a(signed).txt
+    public static Path signedFile(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "(signed).txt");
+    }
+
+    private BigInteger fileHash(FileChannel channel, long count, HashAlgorithm algorithm, BigInteger q) throws IOException {
+        HashFunction function = newFunction(algorithm);
+        hashRange(function, channel, 0, count);
+        return algorithm.toInteger(function.digest(), function.digestLength(), q);
+    }
+
+    // resumes from the stored midstate when the prefix is unchanged and stores a new one at the last whole block
+    private BigInteger resumableHash(Path path, FileChannel channel, BigInteger q) throws IOException {
+        long count = channel.size();
+        long boundary = count - count % 64;
+        SHA1 sha1 = new SHA1();
+        Checkpoint checkpoint = checkpointStore.load(path, channel);
+        long offset = checkpoint == null || checkpoint.getOffset() > boundary ? 0 : checkpoint.getOffset();
+        if (offset > 0) sha1.importMidstate(checkpoint.getMidstate());
+        HashFunction function = metrics == Metrics.NONE ? sha1 : new InstrumentedHash(sha1, HashAlgorithm.SHA1.getName(), metrics);
+        hashRange(function, channel, offset, boundary);
+        if (boundary > offset) checkpointStore.save(path, channel, boundary, sha1.exportMidstate());
+        hashRange(function, channel, boundary, count);
+        return HashAlgorithm.SHA1.toInteger(function.digest(), function.digestLength(), q);
+    }
+
+    private void hashRange(HashFunction function, FileChannel channel, long from, long count) throws IOException {
+        if (count - from >= MAPPING_THRESHOLD) {
+            for (long position = from; position < count; position += MAPPING_WINDOW) {
+                long length = Math.min(MAPPING_WINDOW, count - position);
+                function.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                progress(Listener.Phase.HASHING, position + length, count);
+            }
+        } else {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(BUFFER_SIZE, Math.max(count - from, 1)));
+            for (long position = from; position < count; ) {
+                buffer.limit((int) Math.min(buffer.capacity(), count - position));
+                long start = clock();
+                int read = channel.read(buffer, position);
+                if (read < 0) break;
+                metrics.read(read, elapsed(start));
+                position += read;
+                buffer.flip();
+                function.update(buffer);
+                buffer.clear();
+                progress(Listener.Phase.HASHING, position, count);
+            }
+        }
+    }
+
+    private long lastLineOffset(FileChannel channel) throws IOException, WrongFileException {
+        long size = channel.size();
+        if (size == 0) throw new WrongFileException();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TAIL_BUFFER_SIZE, size));
+        long start = size - buffer.capacity();
+        readFully(channel, buffer, start);
+        for (int i = buffer.capacity() - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return start + i;
+        }
+        if (start > 0) throw new WrongFileException();
+        return -1;
+    }
+
+    private String readTrailer(FileChannel channel, long trailerOffset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - trailerOffset - 1));
+        readFully(channel, buffer, trailerOffset + 1);
+        return new String(buffer.array(), StandardCharsets.US_ASCII);
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new EOFException();
+            position += read;
+        }
     }
 
     /*private BigInteger fileHash(File file, boolean isSigned) {
@@ -163,7 +610,10 @@ public class DigitalSignature {
         return previousHash;
     }*/
 
-    private BigInteger powByMod(BigInteger a, BigInteger b, BigInteger m) {
+    static BigInteger powByMod(BigInteger a, BigInteger b, BigInteger m) {
+        if (m.testBit(0) && m.bitLength() > 1) {
+            return new Montgomery(m).pow(a, b);
+        }
         a = a.mod(m);
         BigInteger x = BigInteger.ONE;
         while (b.signum() != 0) {
@@ -178,42 +628,7 @@ public class DigitalSignature {
     }
 
     public static boolean isProbablePrime(BigInteger n, int k) {
-        if (n.compareTo(BigInteger.ONE) == 0 || n.compareTo(BigInteger.ZERO) == 0)
-            return false;
-        if (n.compareTo(THREE) == 0 || n.compareTo(BigInteger.TWO) == 0)
-            return true;
-        int s = 0;
-        BigInteger d = n.subtract(BigInteger.ONE);
-        while (d.mod(BigInteger.TWO).equals(BigInteger.ZERO)) {
-            s++; // n-1 =2^s * d, d%2!=0
-            d = d.divide(BigInteger.TWO);
-        } // число составное если имеет место хотя бы одно из условий
-        for (int i = 0; i < k; i++) {
-            BigInteger a = uniformRandom(BigInteger.TWO, n.subtract(BigInteger.ONE)); // Выбрать случайное целое число a в отрезке [2, n − 1]
-            BigInteger x = a.modPow(d, n); // a^d mod n != 1
-            if (x.equals(BigInteger.ONE) || x.equals(n.subtract(BigInteger.ONE)))
-                continue;
-            int r = 0;
-            for (; r < s; r++) { // E r<s a^((2^r)*d) mod n !=-1
-                x = x.modPow(BigInteger.TWO, n);
-                if (x.equals(BigInteger.ONE))
-                    return false;
-                if (x.equals(n.subtract(BigInteger.ONE)))
-                    break;
-            }
-            if (r == s)
-                return false;
-        }
-        return true;
-    }
-
-    private static BigInteger uniformRandom(BigInteger bottom, BigInteger top) {
-        Random rnd = new Random();
-        BigInteger res;
-        do {
-            res = new BigInteger(top.bitLength(), rnd);
-        } while (res.compareTo(bottom) < 0 || res.compareTo(top) > 0);
-        return res;
+        return Primality.isProbablePrime(n, k);
     }
 
-}
\ No newline at end of file
+}
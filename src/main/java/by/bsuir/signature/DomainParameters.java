@@ -0,0 +1,136 @@
+package by.bsuir.signature;
+
+import by.bsuir.signature.exceptions.WrongValueException;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// validated once here: p and q are prime, q divides p - 1 and g has order q, which the rest of the package relies on
+public final class DomainParameters {
+
+    // the reason a candidate is rejected, so callers can tell the user which value is wrong
+    public enum Defect {
+        NOT_POSITIVE, NOT_PRIME, Q_DOES_NOT_DIVIDE, H_OUT_OF_RANGE, G_OUT_OF_RANGE, G_WRONG_ORDER
+    }
+
+    private static final int PRIMALITY_ROUNDS = 10;
+
+    private final BigInteger p;
+
+    private final BigInteger q;
+
+    private final BigInteger g;
+
+    private final Montgomery montgomery;
+
+    private volatile FixedBaseTable generatorTable;
+
+    private volatile byte[] fingerprint;
+
+    public DomainParameters(BigInteger p, BigInteger q, BigInteger g) throws WrongValueException {
+        if (findDefect(p, q, g) != null) throw new WrongValueException();
+        this.p = p;
+        this.q = q;
+        this.g = g;
+        this.montgomery = new Montgomery(p);
+    }
+
+    public static DomainParameters fromH(BigInteger p, BigInteger q, BigInteger h) throws WrongValueException {
+        if (findDefectOfH(p, q, h) != null) throw new WrongValueException();
+        return new DomainParameters(p, q, generator(p, q, h));
+    }
+
+    // null when the constructor would accept the values; primes already certified are not tested again
+    public static Defect findDefect(BigInteger p, BigInteger q, BigInteger g) {
+        Defect defect = findDefect(p, q);
+        if (defect != null) return defect;
+        if (g.compareTo(BigInteger.ONE) <= 0 || g.compareTo(p) >= 0) return Defect.G_OUT_OF_RANGE;
+        if (!DigitalSignature.powByMod(g, q, p).equals(BigInteger.ONE)) return Defect.G_WRONG_ORDER;
+        return null;
+    }
+
+    // g = h^((p - 1) / q) mod p with 1 < h < p - 1
+    public static Defect findDefectOfH(BigInteger p, BigInteger q, BigInteger h) {
+        Defect defect = findDefect(p, q);
+        if (defect != null) return defect;
+        if (h.compareTo(BigInteger.ONE) <= 0 || h.compareTo(p.subtract(BigInteger.ONE)) >= 0) return Defect.H_OUT_OF_RANGE;
+        return findDefect(p, q, generator(p, q, h));
+    }
+
+    private static Defect findDefect(BigInteger p, BigInteger q) {
+        if (p.signum() <= 0 || q.signum() <= 0) return Defect.NOT_POSITIVE;
+        if (!Primality.isProbablePrime(p, PRIMALITY_ROUNDS) || !Primality.isProbablePrime(q, PRIMALITY_ROUNDS)) return Defect.NOT_PRIME;
+        if (p.subtract(BigInteger.ONE).mod(q).signum() != 0) return Defect.Q_DOES_NOT_DIVIDE;
+        return null;
+    }
+
+    private static BigInteger generator(BigInteger p, BigInteger q, BigInteger h) {
+        return DigitalSignature.powByMod(h, p.subtract(BigInteger.ONE).divide(q), p);
+    }
+
+    public BigInteger getP() {
+        return p;
+    }
+
+    public BigInteger getQ() {
+        return q;
+    }
+
+    public BigInteger getG() {
+        return g;
+    }
+
+    Montgomery getMontgomery() {
+        return montgomery;
+    }
+
+    public BigInteger powG(BigInteger exponent) {
+        FixedBaseTable table = generatorTable;
+        if (table == null) {
+            synchronized (this) {
+                table = generatorTable;
+                if (table == null) {
+                    table = new FixedBaseTable(g, montgomery, q);
+                    generatorTable = table;
+                }
+            }
+        }
+        return table.pow(exponent);
+    }
+
+    // SHA-256 over the length-prefixed p, q and g, identifies the parameters a detached signature was made with
+    byte[] fingerprint() {
+        byte[] result = fingerprint;
+        if (result == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (BigInteger value : new BigInteger[]{p, q, g}) {
+                    byte[] bytes = value.toByteArray();
+                    digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                    digest.update(bytes);
+                }
+                result = digest.digest();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            fingerprint = result;
+        }
+        return result.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DomainParameters)) return false;
+        DomainParameters that = (DomainParameters) o;
+        return p.equals(that.p) && q.equals(that.q) && g.equals(that.g);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * p.hashCode() + q.hashCode()) + g.hashCode();
+    }
+
+}
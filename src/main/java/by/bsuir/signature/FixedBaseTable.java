@@ -0,0 +1,60 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+
+public final class FixedBaseTable {
+
+    private static final int WINDOW = 4;
+
+    private static final int DIGITS = 1 << WINDOW;
+
+    private final Montgomery montgomery;
+
+    private final BigInteger order;
+
+    // table[i][d] = base^(d * 2^(WINDOW * i)) in Montgomery form
+    private final int[][][] table;
+
+    public FixedBaseTable(BigInteger base, Montgomery montgomery, BigInteger order) {
+        this.montgomery = montgomery;
+        this.order = order;
+        int windows = (order.bitLength() + WINDOW - 1) / WINDOW;
+        int[] scratch = montgomery.newScratch();
+        table = new int[windows][DIGITS][];
+        int[] power = montgomery.toMontgomery(base);
+        for (int i = 0; i < windows; i++) {
+            table[i][1] = power;
+            for (int d = 2; d < DIGITS; d++) {
+                table[i][d] = new int[montgomery.size()];
+                montgomery.multiply(table[i][d - 1], power, table[i][d], scratch);
+            }
+            int[] next = new int[montgomery.size()];
+            montgomery.multiply(table[i][DIGITS - 1], power, next, scratch);
+            power = next;
+        }
+    }
+
+    public BigInteger pow(BigInteger exponent) {
+        if (exponent.signum() < 0 || exponent.compareTo(order) >= 0) {
+            exponent = exponent.mod(order);
+        }
+        byte[] bytes = exponent.toByteArray();
+        int[] scratch = montgomery.newScratch();
+        int[] result = montgomery.one();
+        int[] temp = new int[montgomery.size()];
+        for (int i = 0, j = bytes.length - 1; j >= 0; j--) {
+            int digits = bytes[j] & 0xFF;
+            for (int n = 0; n < 8 / WINDOW && i < table.length; n++, i++, digits >>>= WINDOW) {
+                int d = digits & (DIGITS - 1);
+                if (d != 0) {
+                    montgomery.multiply(result, table[i][d], temp, scratch);
+                    int[] swap = result;
+                    result = temp;
+                    temp = swap;
+                }
+            }
+        }
+        return montgomery.fromMontgomery(result, scratch);
+    }
+
+}
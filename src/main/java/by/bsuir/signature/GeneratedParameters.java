@@ -0,0 +1,39 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+public final class GeneratedParameters {
+
+    private final BigInteger h;
+
+    private final PrivateKey privateKey;
+
+    private final Map<String, Duration> phaseTimes;
+
+    GeneratedParameters(BigInteger h, PrivateKey privateKey, Map<String, Duration> phaseTimes) {
+        this.h = h;
+        this.privateKey = privateKey;
+        this.phaseTimes = Collections.unmodifiableMap(phaseTimes);
+    }
+
+    public DomainParameters getParameters() {
+        return privateKey.getParameters();
+    }
+
+    public BigInteger getH() {
+        return h;
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    // "q", "p", "g" and "key" in the order they ran
+    public Map<String, Duration> getPhaseTimes() {
+        return phaseTimes;
+    }
+
+}
@@ -0,0 +1,64 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.util.function.Supplier;
+
+public enum HashAlgorithm {
+
+    SHA1("SHA-1", 1, SHA1::new),
+    SHA1_JDK("SHA-1", 1, () -> new MessageDigestHash("SHA-1")),
+    SHA256("SHA-256", 2, () -> new MessageDigestHash("SHA-256")),
+    SHA512("SHA-512", 3, () -> new MessageDigestHash("SHA-512"));
+
+    private final String name;
+
+    private final int id;
+
+    private final Supplier<HashFunction> factory;
+
+    HashAlgorithm(String name, int id, Supplier<HashFunction> factory) {
+        this.name = name;
+        this.id = id;
+        this.factory = factory;
+    }
+
+    // the standard name written to the signature, both SHA-1 implementations produce the same digest
+    public String getName() {
+        return name;
+    }
+
+    // the byte stored in detached signatures, shared by algorithms with the same name
+    int getId() {
+        return id;
+    }
+
+    public HashFunction newFunction() {
+        return factory.get();
+    }
+
+    // SHA-1 signatures keep the original convention of using the whole digest, so files signed
+    // before the other algorithms existed still verify; the rest take the leftmost bits of the
+    // digest that fit in q, as in FIPS 186-4
+    public BigInteger toInteger(BigInteger digest, int digestLength, BigInteger q) {
+        int excess = 8 * digestLength - q.bitLength();
+        if (this == SHA1 || this == SHA1_JDK || excess <= 0) return digest;
+        return digest.shiftRight(excess);
+    }
+
+    public static HashAlgorithm forName(String name, HashAlgorithm preferred) {
+        if (preferred.name.equals(name)) return preferred;
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.name.equals(name)) return algorithm;
+        }
+        return null;
+    }
+
+    static HashAlgorithm forId(int id, HashAlgorithm preferred) {
+        if (preferred.id == id) return preferred;
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.id == id) return algorithm;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,17 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+public interface HashFunction {
+
+    void update(byte[] bytes, int off, int len);
+
+    void update(ByteBuffer buffer);
+
+    // returns the digest and resets the function for the next message
+    BigInteger digest();
+
+    int digestLength();
+
+}
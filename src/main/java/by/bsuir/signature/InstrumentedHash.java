@@ -0,0 +1,46 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+// times every update of the wrapped function, only created when metrics are enabled
+final class InstrumentedHash implements HashFunction {
+
+    private final HashFunction function;
+
+    private final String algorithm;
+
+    private final Metrics metrics;
+
+    InstrumentedHash(HashFunction function, String algorithm, Metrics metrics) {
+        this.function = function;
+        this.algorithm = algorithm;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void update(byte[] bytes, int off, int len) {
+        long start = System.nanoTime();
+        function.update(bytes, off, len);
+        metrics.hashed(algorithm, len, System.nanoTime() - start);
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        long start = System.nanoTime();
+        function.update(buffer);
+        metrics.hashed(algorithm, length, System.nanoTime() - start);
+    }
+
+    @Override
+    public BigInteger digest() {
+        return function.digest();
+    }
+
+    @Override
+    public int digestLength() {
+        return function.digestLength();
+    }
+
+}
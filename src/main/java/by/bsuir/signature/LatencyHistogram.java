@@ -0,0 +1,51 @@
+package by.bsuir.signature;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// power-of-two buckets: a value lands in bucket 64 - numberOfLeadingZeros(value), so percentiles are upper bounds within 2x
+public final class LatencyHistogram {
+
+    private final LongAdder[] buckets = new LongAdder[65];
+
+    private final LongAdder total = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        buckets[64 - Long.numberOfLeadingZeros(Math.max(nanos, 0))].increment();
+        total.add(nanos);
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long totalNanos() {
+        return total.sum();
+    }
+
+    public long percentile(double percentile) {
+        long[] counts = new long[buckets.length];
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        for (int i = 0; i < counts.length; i++) {
+            rank -= counts[i];
+            if (rank <= 0) return i == 0 ? 0 : i == 64 ? Long.MAX_VALUE : (1L << i) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+}
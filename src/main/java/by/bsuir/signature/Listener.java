@@ -6,4 +6,14 @@ public interface Listener {
 
     void showSign(BigInteger r, BigInteger s, BigInteger hash);
 
+    // called from the thread doing the work, bytesDone and total are only meaningful while hashing
+    default void showProgress(Phase phase, long bytesDone, long total) {
+    }
+
+    enum Phase {
+        HASHING,
+        VERIFYING,
+        WRITING
+    }
+
 }
@@ -0,0 +1,40 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class MessageDigestHash implements HashFunction {
+
+    private final MessageDigest messageDigest;
+
+    public MessageDigestHash(String algorithm) {
+        try {
+            this.messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(algorithm + " is not supported by this JVM", e);
+        }
+    }
+
+    @Override
+    public void update(byte[] bytes, int off, int len) {
+        messageDigest.update(bytes, off, len);
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        messageDigest.update(buffer);
+    }
+
+    @Override
+    public BigInteger digest() {
+        return new BigInteger(1, messageDigest.digest());
+    }
+
+    @Override
+    public int digestLength() {
+        return messageDigest.getDigestLength();
+    }
+
+}
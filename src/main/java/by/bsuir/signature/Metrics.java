@@ -0,0 +1,33 @@
+package by.bsuir.signature;
+
+// receives timings from DigitalSignature, every method may be called from several threads at once
+public interface Metrics {
+
+    // the default, DigitalSignature skips the clock reads and the hash wrapper when it is set
+    Metrics NONE = new Metrics() {
+    };
+
+    // bytes run through the hash function and the time spent inside it; for mapped files this includes page faults
+    default void hashed(String algorithm, long bytes, long nanos) {
+    }
+
+    // reads of the input through a buffer
+    default void read(long bytes, long nanos) {
+    }
+
+    // writing the signed copy or the sidecar, including force and the final rename
+    default void rewritten(long bytes, long nanos) {
+    }
+
+    // the verification exponentiation; nonces are built outside DigitalSignature and only show up as JFR events
+    default void modExp(long nanos) {
+    }
+
+    default void signed(long nanos) {
+    }
+
+    // checkSignature only, verifyAll reports the exponentiation of each file through modExp
+    default void verified(long nanos) {
+    }
+
+}
@@ -0,0 +1,47 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+
+public final class ModularInverse {
+
+    private ModularInverse() {
+    }
+
+    // extended Euclid
+    public static BigInteger inverse(BigInteger a, BigInteger m) {
+        BigInteger r0 = m;
+        BigInteger r1 = a.mod(m);
+        BigInteger t0 = BigInteger.ZERO;
+        BigInteger t1 = BigInteger.ONE;
+        while (r1.signum() != 0) {
+            BigInteger[] quotientAndRemainder = r0.divideAndRemainder(r1);
+            r0 = r1;
+            r1 = quotientAndRemainder[1];
+            BigInteger t = t0.subtract(quotientAndRemainder[0].multiply(t1));
+            t0 = t1;
+            t1 = t;
+        }
+        if (!r0.equals(BigInteger.ONE)) throw new ArithmeticException("Value is not invertible");
+        return t0.signum() < 0 ? t0.add(m) : t0;
+    }
+
+    // Montgomery's simultaneous inversion: one inverse and 3(n - 1) multiplications for n values
+    public static BigInteger[] inverseAll(BigInteger[] values, BigInteger m) {
+        int n = values.length;
+        BigInteger[] inverses = new BigInteger[n];
+        if (n == 0) return inverses;
+        BigInteger[] prefix = new BigInteger[n];
+        prefix[0] = values[0].mod(m);
+        for (int i = 1; i < n; i++) {
+            prefix[i] = prefix[i - 1].multiply(values[i]).mod(m);
+        }
+        BigInteger inverse = inverse(prefix[n - 1], m);
+        for (int i = n - 1; i > 0; i--) {
+            inverses[i] = inverse.multiply(prefix[i - 1]).mod(m);
+            inverse = inverse.multiply(values[i]).mod(m);
+        }
+        inverses[0] = inverse;
+        return inverses;
+    }
+
+}
@@ -0,0 +1,176 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public final class Montgomery {
+
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private static final int WINDOW = 4;
+
+    private final BigInteger modulus;
+
+    // little-endian 32-bit limbs of the modulus
+    private final int[] n;
+
+    private final int size;
+
+    // -n^-1 mod 2^32
+    private final int n0;
+
+    private final int[] one;
+
+    public Montgomery(BigInteger modulus) {
+        if (modulus.signum() <= 0 || !modulus.testBit(0) || modulus.equals(BigInteger.ONE))
+            throw new IllegalArgumentException("Montgomery modulus should be odd and greater than 1");
+        this.modulus = modulus;
+        this.size = (modulus.bitLength() + 31) / 32;
+        this.n = toLimbs(modulus);
+        int inverse = n[0];
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - n[0] * inverse;
+        }
+        this.n0 = -inverse;
+        this.one = toMontgomery(BigInteger.ONE);
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    public BigInteger multiply(BigInteger a, BigInteger b) {
+        int[] scratch = newScratch();
+        int[] result = new int[size];
+        multiply(toMontgomery(a), toMontgomery(b), result, scratch);
+        return fromMontgomery(result, scratch);
+    }
+
+    public BigInteger pow(BigInteger base, BigInteger exponent) {
+        if (exponent.signum() < 0) throw new ArithmeticException("Negative exponent");
+        int[] scratch = newScratch();
+        int[][] powers = new int[1 << WINDOW][];
+        powers[0] = one;
+        powers[1] = toMontgomery(base);
+        for (int d = 2; d < powers.length; d++) {
+            powers[d] = new int[size];
+            multiply(powers[d - 1], powers[1], powers[d], scratch);
+        }
+        int[] result = one.clone();
+        int[] temp = new int[size];
+        boolean started = false;
+        for (int i = (exponent.bitLength() + WINDOW - 1) / WINDOW * WINDOW - WINDOW; i >= 0; i -= WINDOW) {
+            if (started) {
+                for (int j = 0; j < WINDOW; j++) {
+                    multiply(result, result, temp, scratch);
+                    int[] swap = result;
+                    result = temp;
+                    temp = swap;
+                }
+            }
+            int digit = 0;
+            for (int j = WINDOW - 1; j >= 0; j--) {
+                digit = (digit << 1) | (exponent.testBit(i + j) ? 1 : 0);
+            }
+            if (digit != 0) {
+                multiply(result, powers[digit], temp, scratch);
+                int[] swap = result;
+                result = temp;
+                temp = swap;
+                started = true;
+            }
+        }
+        return fromMontgomery(result, scratch);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] one() {
+        return one.clone();
+    }
+
+    int[] newScratch() {
+        return new int[size + 2];
+    }
+
+    int[] toMontgomery(BigInteger a) {
+        return toLimbs(a.shiftLeft(32 * size).mod(modulus));
+    }
+
+    BigInteger fromMontgomery(int[] a, int[] scratch) {
+        int[] unit = new int[size];
+        unit[0] = 1;
+        int[] result = new int[size];
+        multiply(a, unit, result, scratch);
+        byte[] bytes = new byte[4 * size + 1];
+        for (int i = 0; i < size; i++) {
+            int limb = result[i];
+            int position = bytes.length - 1 - 4 * i;
+            bytes[position] = (byte) limb;
+            bytes[position - 1] = (byte) (limb >>> 8);
+            bytes[position - 2] = (byte) (limb >>> 16);
+            bytes[position - 3] = (byte) (limb >>> 24);
+        }
+        return new BigInteger(bytes);
+    }
+
+    // result = a * b * R^-1 mod n (CIOS, multiplication and reduction interleaved per limb);
+    // result may not alias a or b, scratch holds size + 2 limbs
+    void multiply(int[] a, int[] b, int[] result, int[] scratch) {
+        int[] t = scratch;
+        Arrays.fill(t, 0);
+        long n0j = n[0] & MASK;
+        long b0 = b[0] & MASK;
+        for (int i = 0; i < size; i++) {
+            long ai = a[i] & MASK;
+            long product = ai * b0 + (t[0] & MASK);
+            long m = ((int) product * n0) & MASK;
+            long reduced = m * n0j + (product & MASK);
+            long productCarry = product >>> 32;
+            long reducedCarry = reduced >>> 32;
+            for (int j = 1; j < size; j++) {
+                product = ai * (b[j] & MASK) + (t[j] & MASK) + productCarry;
+                reduced = m * (n[j] & MASK) + (product & MASK) + reducedCarry;
+                productCarry = product >>> 32;
+                reducedCarry = reduced >>> 32;
+                t[j - 1] = (int) reduced;
+            }
+            long sum = (t[size] & MASK) + productCarry + reducedCarry;
+            t[size - 1] = (int) sum;
+            t[size] = (int) (sum >>> 32);
+        }
+        if (t[size] != 0 || compare(t, n) >= 0) {
+            long borrow = 0;
+            for (int j = 0; j < size; j++) {
+                long difference = (t[j] & MASK) - (n[j] & MASK) - borrow;
+                result[j] = (int) difference;
+                borrow = (difference >>> 63);
+            }
+        } else {
+            System.arraycopy(t, 0, result, 0, size);
+        }
+    }
+
+    private int compare(int[] a, int[] b) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (a[i] != b[i]) return Integer.compareUnsigned(a[i], b[i]);
+        }
+        return 0;
+    }
+
+    private int[] toLimbs(BigInteger value) {
+        int[] limbs = new int[size];
+        byte[] bytes = value.toByteArray();
+        for (int i = 0, position = bytes.length - 1; i < size && position >= 0; i++) {
+            int limb = 0;
+            for (int shift = 0; shift < 32 && position >= 0; shift += 8, position--) {
+                limb |= (bytes[position] & 0xFF) << shift;
+            }
+            limbs[i] = limb;
+        }
+        return limbs;
+    }
+
+}
@@ -0,0 +1,68 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+
+public final class MultiExponentiation {
+
+    private static final int WINDOW = 2;
+
+    private static final int DIGITS = 1 << WINDOW;
+
+    private MultiExponentiation() {
+    }
+
+    // a^e1 * b^e2 mod m with one shared squaring chain (Shamir's trick over 2-bit windows)
+    public static BigInteger powProduct(BigInteger a, BigInteger e1, BigInteger b, BigInteger e2, Montgomery montgomery) {
+        if (e1.signum() < 0 || e2.signum() < 0) throw new ArithmeticException("Negative exponent");
+        int size = montgomery.size();
+        int[] scratch = montgomery.newScratch();
+        int[][] table = new int[DIGITS * DIGITS][];
+        table[0] = montgomery.one();
+        table[1] = montgomery.toMontgomery(b);
+        table[DIGITS] = montgomery.toMontgomery(a);
+        for (int i = 0; i < DIGITS; i++) {
+            for (int j = 0; j < DIGITS; j++) {
+                int index = i * DIGITS + j;
+                if (table[index] != null) continue;
+                table[index] = new int[size];
+                if (j > 0) {
+                    montgomery.multiply(table[index - 1], table[1], table[index], scratch);
+                } else {
+                    montgomery.multiply(table[index - DIGITS], table[DIGITS], table[index], scratch);
+                }
+            }
+        }
+        int bits = Math.max(e1.bitLength(), e2.bitLength());
+        int[] result = montgomery.one();
+        int[] temp = new int[size];
+        boolean started = false;
+        for (int i = (bits + WINDOW - 1) / WINDOW * WINDOW - WINDOW; i >= 0; i -= WINDOW) {
+            if (started) {
+                for (int n = 0; n < WINDOW; n++) {
+                    montgomery.multiply(result, result, temp, scratch);
+                    int[] swap = result;
+                    result = temp;
+                    temp = swap;
+                }
+            }
+            int index = digit(e1, i) * DIGITS + digit(e2, i);
+            if (index != 0) {
+                montgomery.multiply(result, table[index], temp, scratch);
+                int[] swap = result;
+                result = temp;
+                temp = swap;
+                started = true;
+            }
+        }
+        return montgomery.fromMontgomery(result, scratch);
+    }
+
+    private static int digit(BigInteger e, int position) {
+        int d = 0;
+        for (int n = WINDOW - 1; n >= 0; n--) {
+            d = (d << 1) | (e.testBit(position + n) ? 1 : 0);
+        }
+        return d;
+    }
+
+}
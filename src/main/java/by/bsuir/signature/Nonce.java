@@ -0,0 +1,61 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+
+public final class Nonce {
+
+    private final BigInteger r;
+
+    private final BigInteger kInverse;
+
+    private Nonce(BigInteger r, BigInteger kInverse) {
+        this.r = r;
+        this.kInverse = kInverse;
+    }
+
+    public static Nonce of(DomainParameters parameters, BigInteger k) {
+        BigInteger q = parameters.getQ();
+        checkK(k, q);
+        return new Nonce(powG(parameters, k).mod(q), ModularInverse.inverse(k, q));
+    }
+
+    public static Nonce[] of(DomainParameters parameters, BigInteger[] ks) {
+        BigInteger q = parameters.getQ();
+        for (BigInteger k : ks) {
+            checkK(k, q);
+        }
+        BigInteger[] inverses = ModularInverse.inverseAll(ks, q);
+        Nonce[] nonces = new Nonce[ks.length];
+        for (int i = 0; i < ks.length; i++) {
+            nonces[i] = new Nonce(powG(parameters, ks[i]).mod(q), inverses[i]);
+        }
+        return nonces;
+    }
+
+    private static BigInteger powG(DomainParameters parameters, BigInteger k) {
+        SignatureEvents.ModExp event = new SignatureEvents.ModExp();
+        event.begin();
+        BigInteger r = parameters.powG(k);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "nonce";
+            event.modulusBits = parameters.getP().bitLength();
+            event.commit();
+        }
+        return r;
+    }
+
+    private static void checkK(BigInteger k, BigInteger q) {
+        if (k.signum() <= 0 || k.compareTo(q) >= 0)
+            throw new IllegalArgumentException("K should be greater than 0 and lower than Q");
+    }
+
+    BigInteger getR() {
+        return r;
+    }
+
+    BigInteger getKInverse() {
+        return kInverse;
+    }
+
+}
@@ -0,0 +1,89 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+public class NoncePool implements NonceSource, AutoCloseable {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final DomainParameters parameters;
+
+    private final int capacity;
+
+    private final BlockingQueue<Nonce> nonces;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final Thread producer;
+
+    private volatile RuntimeException failure;
+
+    private volatile boolean closed;
+
+    public NoncePool(DomainParameters parameters, int capacity) {
+        this.parameters = parameters;
+        this.capacity = capacity;
+        this.nonces = new ArrayBlockingQueue<>(capacity);
+        this.producer = new Thread(this::produce, "nonce-producer");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    // every nonce is handed out once: reusing k for two signatures reveals x;
+    // once the producer has failed or the pool is closed the callers get an exception instead of waiting for nonces that never come
+    @Override
+    public Nonce next() {
+        try {
+            while (true) {
+                if (closed) throw new IllegalStateException("Nonce pool is closed");
+                Nonce nonce = nonces.poll(100, TimeUnit.MILLISECONDS);
+                if (nonce != null) return nonce;
+                if (failure != null) throw new IllegalStateException("Nonce producer failed", failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    public int available() {
+        return nonces.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        producer.interrupt();
+    }
+
+    private void produce() {
+        BigInteger q = parameters.getQ();
+        BigInteger[] ks = new BigInteger[Math.min(BATCH_SIZE, capacity)];
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (int i = 0; i < ks.length; i++) {
+                    BigInteger k;
+                    do {
+                        k = new BigInteger(q.bitLength(), random);
+                    } while (k.signum() == 0 || k.compareTo(q) >= 0);
+                    ks[i] = k;
+                }
+                for (Nonce nonce : Nonce.of(parameters, ks)) {
+                    if (nonce.getR().signum() != 0) {
+                        nonces.put(nonce);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+
+}
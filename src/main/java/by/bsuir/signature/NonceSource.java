@@ -0,0 +1,7 @@
+package by.bsuir.signature;
+
+public interface NonceSource {
+
+    Nonce next();
+
+}
@@ -0,0 +1,107 @@
+package by.bsuir.signature;
+
+import by.bsuir.signature.exceptions.WrongValueException;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+public class ParameterGenerator {
+
+    private static final int ROUNDS = 40;
+
+    private final int threads;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public ParameterGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParameterGenerator(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Thread count should be positive");
+        this.threads = threads;
+    }
+
+    // e.g. generate(2048, 256) or generate(3072, 256)
+    public GeneratedParameters generate(int pBits, int qBits) throws InterruptedException {
+        if (qBits < 2 || pBits <= qBits) throw new IllegalArgumentException("P should be longer than Q");
+        Map<String, Duration> phaseTimes = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            BigInteger q = search(executor, random -> new BigInteger(qBits, random).setBit(qBits - 1).setBit(0));
+            phaseTimes.put("q", Duration.ofNanos(System.nanoTime() - start));
+
+            start = System.nanoTime();
+            BigInteger doubleQ = q.shiftLeft(1);
+            BigInteger p = search(executor, random -> {
+                BigInteger candidate = new BigInteger(pBits, random).setBit(pBits - 1);
+                candidate = candidate.subtract(candidate.mod(doubleQ)).add(BigInteger.ONE); // p = j * q + 1, j even
+                return candidate.bitLength() == pBits ? candidate : null;
+            });
+            phaseTimes.put("p", Duration.ofNanos(System.nanoTime() - start));
+
+            start = System.nanoTime();
+            BigInteger h = BigInteger.TWO;
+            DomainParameters parameters = null;
+            while (parameters == null) {
+                try {
+                    parameters = DomainParameters.fromH(p, q, h);
+                } catch (WrongValueException e) {
+                    h = h.add(BigInteger.ONE);
+                }
+            }
+            phaseTimes.put("g", Duration.ofNanos(System.nanoTime() - start));
+
+            start = System.nanoTime();
+            PrivateKey privateKey = generateKey(parameters);
+            phaseTimes.put("key", Duration.ofNanos(System.nanoTime() - start));
+            return new GeneratedParameters(h, privateKey, phaseTimes);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public PrivateKey generateKey(DomainParameters parameters) {
+        BigInteger q = parameters.getQ();
+        BigInteger x;
+        do {
+            x = new BigInteger(q.bitLength(), random);
+        } while (x.signum() == 0 || x.compareTo(q) >= 0);
+        return new PrivateKey(parameters, x);
+    }
+
+    // every worker draws its own candidates, the first prime found wins and the other workers are cancelled
+    private BigInteger search(ExecutorService executor, Function<SecureRandom, BigInteger> candidates) throws InterruptedException {
+        List<Callable<BigInteger>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            SecureRandom workerRandom = new SecureRandom(random.generateSeed(32));
+            workers.add(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    BigInteger candidate = candidates.apply(workerRandom);
+                    if (candidate == null || Primality.hasSmallFactor(candidate)) continue;
+                    if (Primality.isProbablePrime(candidate, 1) && Primality.isProbablePrime(candidate, ROUNDS)) {
+                        return candidate;
+                    }
+                }
+                throw new InterruptedException();
+            });
+        }
+        try {
+            return executor.invokeAny(workers);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
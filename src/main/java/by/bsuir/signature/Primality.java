@@ -0,0 +1,138 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+public final class Primality {
+
+    private static final int SIEVE_LIMIT = 2000;
+
+    private static final int MEMO_SIZE = 256;
+
+    private static final int[] SMALL_PRIMES = sieve(SIEVE_LIMIT);
+
+    // products of consecutive small primes that fit in a long, so one BigInteger division covers several primes
+    private static final List<BigInteger> PRIME_PRODUCTS = new ArrayList<>();
+
+    private static final List<int[]> PRIME_GROUPS = new ArrayList<>();
+
+    // n -> number of Miller-Rabin rounds it has already passed
+    private static final Map<BigInteger, Integer> CERTIFIED = Collections.synchronizedMap(
+            new LinkedHashMap<>(MEMO_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<BigInteger, Integer> eldest) {
+                    return size() > MEMO_SIZE;
+                }
+            });
+
+    static {
+        int from = 0;
+        while (from < SMALL_PRIMES.length) {
+            long product = 1;
+            int to = from;
+            while (to < SMALL_PRIMES.length && product <= Long.MAX_VALUE / SMALL_PRIMES[to]) {
+                product *= SMALL_PRIMES[to++];
+            }
+            int[] group = new int[to - from];
+            System.arraycopy(SMALL_PRIMES, from, group, 0, group.length);
+            PRIME_PRODUCTS.add(BigInteger.valueOf(product));
+            PRIME_GROUPS.add(group);
+            from = to;
+        }
+    }
+
+    private Primality() {
+    }
+
+    public static boolean isProbablePrime(BigInteger n, int rounds) {
+        return isProbablePrime(n, rounds, false);
+    }
+
+    public static boolean isProbablePrime(BigInteger n, int rounds, boolean parallel) {
+        if (n.signum() <= 0 || n.equals(BigInteger.ONE))
+            return false;
+        if (n.bitLength() <= 31 && n.intValue() <= SIEVE_LIMIT)
+            return Arrays.binarySearch(SMALL_PRIMES, n.intValue()) >= 0;
+        Integer certified = CERTIFIED.get(n);
+        if (certified != null && certified >= rounds)
+            return true;
+        if (hasSmallFactor(n))
+            return false;
+        BigInteger nMinusOne = n.subtract(BigInteger.ONE);
+        int s = nMinusOne.getLowestSetBit(); // n - 1 = 2^s * d, d % 2 != 0
+        BigInteger d = nMinusOne.shiftRight(s);
+        IntStream witnesses = IntStream.range(0, rounds);
+        if (parallel) witnesses = witnesses.parallel();
+        boolean prime = witnesses.allMatch(i -> passesRound(n, nMinusOne, d, s));
+        if (prime) {
+            CERTIFIED.merge(n, rounds, Math::max);
+        }
+        return prime;
+    }
+
+    static void clearCertified() {
+        CERTIFIED.clear();
+    }
+
+    static boolean hasSmallFactor(BigInteger n) {
+        for (int i = 0; i < PRIME_PRODUCTS.size(); i++) {
+            long remainder = n.mod(PRIME_PRODUCTS.get(i)).longValue();
+            for (int prime : PRIME_GROUPS.get(i)) {
+                if (remainder % prime == 0 && !n.equals(BigInteger.valueOf(prime)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean passesRound(BigInteger n, BigInteger nMinusOne, BigInteger d, int s) {
+        BigInteger a = randomWitness(n);
+        BigInteger x = a.modPow(d, n);
+        if (x.equals(BigInteger.ONE) || x.equals(nMinusOne))
+            return true;
+        for (int r = 1; r < s; r++) {
+            x = x.multiply(x).mod(n);
+            if (x.equals(BigInteger.ONE))
+                return false;
+            if (x.equals(nMinusOne))
+                return true;
+        }
+        return false;
+    }
+
+    // uniform in [2, n - 2]
+    private static BigInteger randomWitness(BigInteger n) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BigInteger top = n.subtract(BigInteger.TWO);
+        BigInteger a;
+        do {
+            a = new BigInteger(top.bitLength(), random);
+        } while (a.compareTo(BigInteger.TWO) < 0 || a.compareTo(top) > 0);
+        return a;
+    }
+
+    private static int[] sieve(int limit) {
+        boolean[] composite = new boolean[limit + 1];
+        int count = 0;
+        for (int i = 2; i <= limit; i++) {
+            if (composite[i]) continue;
+            count++;
+            for (int j = i * i; j <= limit; j += i) {
+                composite[j] = true;
+            }
+        }
+        int[] primes = new int[count];
+        for (int i = 2, j = 0; i <= limit; i++) {
+            if (!composite[i]) primes[j++] = i;
+        }
+        return primes;
+    }
+
+}
@@ -0,0 +1,33 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+
+public final class PrivateKey {
+
+    private final DomainParameters parameters;
+
+    private final BigInteger x;
+
+    private final PublicKey publicKey;
+
+    public PrivateKey(DomainParameters parameters, BigInteger x) {
+        if (x.signum() <= 0 || x.compareTo(parameters.getQ()) >= 0)
+            throw new IllegalArgumentException("X should be greater than 0 and lower than Q");
+        this.parameters = parameters;
+        this.x = x;
+        this.publicKey = new PublicKey(parameters, parameters.powG(x));
+    }
+
+    public DomainParameters getParameters() {
+        return parameters;
+    }
+
+    public BigInteger getX() {
+        return x;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+}
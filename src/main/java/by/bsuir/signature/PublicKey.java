@@ -0,0 +1,39 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+
+public final class PublicKey {
+
+    private final DomainParameters parameters;
+
+    private final BigInteger y;
+
+    public PublicKey(DomainParameters parameters, BigInteger y) {
+        if (y.compareTo(BigInteger.ONE) <= 0 || y.compareTo(parameters.getP()) >= 0)
+            throw new IllegalArgumentException("Y should be greater than 1 and lower than P");
+        this.parameters = parameters;
+        this.y = y;
+    }
+
+    public DomainParameters getParameters() {
+        return parameters;
+    }
+
+    public BigInteger getY() {
+        return y;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PublicKey)) return false;
+        PublicKey that = (PublicKey) o;
+        return parameters.equals(that.parameters) && y.equals(that.y);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * parameters.hashCode() + y.hashCode();
+    }
+
+}
@@ -1,84 +1,239 @@
 package by.bsuir.signature;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-public class SHA1 {
+public class SHA1 implements HashFunction {
+
+    private static final int BLOCK_SIZE = 64;
+
+    // h0..h4 and the number of bytes hashed, big-endian
+    public static final int MIDSTATE_LENGTH = 28;
+
+    private static final VarHandle BIG_ENDIAN_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final byte[] block = new byte[BLOCK_SIZE];
+
+    private final int[] w = new int[80];
+
+    private int blockLength;
+
+    private long messageLength;
+
+    private int h0;
+    private int h1;
+    private int h2;
+    private int h3;
+    private int h4;
+
+    public SHA1() {
+        reset();
+    }
 
     public BigInteger sha1(byte[] message) {
-        int h0 = 0x67452301;
-        int h1 = 0xEFCDAB89;
-        int h2 = 0x98BADCFE;
-        int h3 = 0x10325476;
-        int h4 = 0xC3D2E1F0;
-        long messageLength = message.length * 8L;
-        int mod = (int) (messageLength % 512);
-        int newSize;
-        if (mod <= 448) {
-            newSize = (448 - mod + 64) / 8;
-        } else {
-            newSize = (512 - mod + 512) / 8;
+        reset();
+        update(message, 0, message.length);
+        return digest();
+    }
+
+    public void reset() {
+        h0 = 0x67452301;
+        h1 = 0xEFCDAB89;
+        h2 = 0x98BADCFE;
+        h3 = 0x10325476;
+        h4 = 0xC3D2E1F0;
+        blockLength = 0;
+        messageLength = 0;
+    }
+
+    public void update(byte[] bytes) {
+        update(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void update(byte[] bytes, int off, int len) {
+        if (off < 0 || len < 0 || off + len > bytes.length) throw new IndexOutOfBoundsException();
+        messageLength += len;
+        if (blockLength > 0) {
+            int count = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(bytes, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength < BLOCK_SIZE) return;
+            processBlock(block, 0);
+            blockLength = 0;
+        }
+        for (; len >= BLOCK_SIZE; off += BLOCK_SIZE, len -= BLOCK_SIZE) {
+            processBlock(bytes, off);
+        }
+        System.arraycopy(bytes, off, block, 0, len);
+        blockLength = len;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int position = buffer.position();
+            update(buffer.array(), buffer.arrayOffset() + position, buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (buffer.order() != ByteOrder.BIG_ENDIAN) {
+            // the duplicate is read, the caller's buffer is consumed as MessageDigest would
+            update(buffer.duplicate().order(ByteOrder.BIG_ENDIAN));
+            buffer.position(buffer.limit());
+            return;
+        }
+        messageLength += buffer.remaining();
+        if (blockLength > 0) {
+            int count = Math.min(buffer.remaining(), BLOCK_SIZE - blockLength);
+            buffer.get(block, blockLength, count);
+            blockLength += count;
+            if (blockLength < BLOCK_SIZE) return;
+            processBlock(block, 0);
+            blockLength = 0;
         }
-        byte[] updatedMessage = new byte[message.length + newSize];
-        System.arraycopy(message, 0, updatedMessage, 0, message.length);
-        updatedMessage[message.length] = (byte) 0b10000000;
-        updatedMessage[updatedMessage.length - 1] = (byte) messageLength;
-        updatedMessage[updatedMessage.length - 2] = (byte) (messageLength >> 8);
-        updatedMessage[updatedMessage.length - 3] = (byte) (messageLength >> 16);
-        updatedMessage[updatedMessage.length - 4] = (byte) (messageLength >> 24);
-        updatedMessage[updatedMessage.length - 5] = (byte) (messageLength >> 32);
-        for (int i = 0; i < updatedMessage.length; i += 64) {
-            byte[] temp = new byte[64];
-            System.arraycopy(updatedMessage, i, temp, 0, 64);
-            int[] w = new int[80];
-            for (int j = 0, k = 0; k < 16; j += 4, k++) {
-                int temp1 = temp[j] >= 0 ? ((int) temp[j]) << 24 : ((int) temp[j]) + 256 << 24;
-                int temp2 = temp[j + 1] >= 0 ? ((int) temp[j + 1]) << 16 : ((int) temp[j + 1]) + 256 << 16;
-                int temp3 = temp[j + 2] >= 0 ? ((int) temp[j + 2]) << 8 : ((int) temp[j + 2]) + 256 << 8;
-                int temp4 = temp[j + 3] >= 0 ? ((int) temp[j + 3]) : ((int) temp[j + 3]) + 256;
-                w[k] = temp1 + temp2 + temp3 + temp4;
-            }
-            for (int j = 16; j < 80; j++) {
-                w[j] = leftRotate(w[j - 3] ^ w[j - 8] ^ w[j - 14] ^ w[j - 16], 1);
-            }
-            int a = h0;
-            int b = h1;
-            int c = h2;
-            int d = h3;
-            int e = h4;
-            for (int j = 0; j < 80; j++) {
-                int f, k;
-                if (j <= 19) {
-                    f = (b & c) | ((~b) & d);
-                    k = 0x5A827999;
-                } else if (j <= 39) {
-                    f = b ^ c ^ d;
-                    k = 0x6ED9EBA1;
-                } else if (j <= 59) {
-                    f = (b & c) | (b & d) | (c & d);
-                    k = 0x8F1BBCDC;
-                } else {
-                    f = b ^ c ^ d;
-                    k = 0xCA62C1D6;
-                }
-                int t = leftRotate(a, 5) + f + e + k + w[j];
-                e = d;
-                d = c;
-                c = leftRotate(b, 30);
-                b = a;
-                a = t;
-            }
-            h0 += a;
-            h1 += b;
-            h2 += c;
-            h3 += d;
-            h4 += e;
+        int position = buffer.position();
+        for (; buffer.limit() - position >= BLOCK_SIZE; position += BLOCK_SIZE) {
+            processBlock(buffer, position);
         }
+        buffer.position(position);
+        blockLength = buffer.remaining();
+        buffer.get(block, 0, blockLength);
+    }
+
+    @Override
+    public BigInteger digest() {
+        long bitLength = messageLength * 8L;
+        block[blockLength++] = (byte) 0b10000000;
+        if (blockLength > BLOCK_SIZE - 8) {
+            while (blockLength < BLOCK_SIZE) block[blockLength++] = 0;
+            processBlock(block, 0);
+            blockLength = 0;
+        }
+        while (blockLength < BLOCK_SIZE - 8) block[blockLength++] = 0;
+        for (int i = 7; i >= 0; i--) {
+            block[blockLength++] = (byte) (bitLength >>> (8 * i));
+        }
+        processBlock(block, 0);
         //System.out.println(Integer.toHexString(h0) + Integer.toHexString(h1) + Integer.toHexString(h2) + Integer.toHexString(h3) + Integer.toHexString(h4));
-        return new BigInteger(1, hashToArray(h0, h1, h2, h3, h4));
+        BigInteger hash = new BigInteger(1, hashToArray(h0, h1, h2, h3, h4));
+        reset();
+        return hash;
+    }
+
+    // only between whole blocks, so the state is fully described by the chaining values and the length
+    public byte[] exportMidstate() {
+        if (blockLength != 0) throw new IllegalStateException("Midstate is only defined at a block boundary");
+        return ByteBuffer.allocate(MIDSTATE_LENGTH)
+                .putInt(h0).putInt(h1).putInt(h2).putInt(h3).putInt(h4)
+                .putLong(messageLength)
+                .array();
     }
 
-    private int leftRotate(int integer, int shift) {
-        return (integer << shift) | (integer >>> (32 - shift));
+    public void importMidstate(byte[] midstate) {
+        if (midstate.length != MIDSTATE_LENGTH) throw new IllegalArgumentException("Midstate should be " + MIDSTATE_LENGTH + " bytes");
+        ByteBuffer buffer = ByteBuffer.wrap(midstate);
+        int[] h = {buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()};
+        long length = buffer.getLong();
+        if (length < 0 || length % BLOCK_SIZE != 0) throw new IllegalArgumentException("Midstate length should be a whole number of blocks");
+        h0 = h[0];
+        h1 = h[1];
+        h2 = h[2];
+        h3 = h[3];
+        h4 = h[4];
+        messageLength = length;
+        blockLength = 0;
+    }
+
+    @Override
+    public int digestLength() {
+        return 20;
+    }
+
+    private void processBlock(byte[] bytes, int offset) {
+        int[] w = this.w;
+        for (int k = 0; k < 16; k++) {
+            w[k] = (int) BIG_ENDIAN_INT.get(bytes, offset + 4 * k);
+        }
+        compress(w);
+    }
+
+    private void processBlock(ByteBuffer buffer, int offset) {
+        int[] w = this.w;
+        for (int k = 0; k < 16; k++) {
+            w[k] = buffer.getInt(offset + 4 * k);
+        }
+        compress(w);
+    }
+
+    // each round group is unrolled by five so the a..e roles rotate through the variables instead of being shuffled
+    private void compress(int[] w) {
+        for (int j = 16; j < 80; j++) {
+            w[j] = Integer.rotateLeft(w[j - 3] ^ w[j - 8] ^ w[j - 14] ^ w[j - 16], 1);
+        }
+        int a = h0;
+        int b = h1;
+        int c = h2;
+        int d = h3;
+        int e = h4;
+        for (int j = 0; j < 20; j += 5) {
+            e += Integer.rotateLeft(a, 5) + (d ^ (b & (c ^ d))) + 0x5A827999 + w[j];
+            b = Integer.rotateLeft(b, 30);
+            d += Integer.rotateLeft(e, 5) + (c ^ (a & (b ^ c))) + 0x5A827999 + w[j + 1];
+            a = Integer.rotateLeft(a, 30);
+            c += Integer.rotateLeft(d, 5) + (b ^ (e & (a ^ b))) + 0x5A827999 + w[j + 2];
+            e = Integer.rotateLeft(e, 30);
+            b += Integer.rotateLeft(c, 5) + (a ^ (d & (e ^ a))) + 0x5A827999 + w[j + 3];
+            d = Integer.rotateLeft(d, 30);
+            a += Integer.rotateLeft(b, 5) + (e ^ (c & (d ^ e))) + 0x5A827999 + w[j + 4];
+            c = Integer.rotateLeft(c, 30);
+        }
+        for (int j = 20; j < 40; j += 5) {
+            e += Integer.rotateLeft(a, 5) + (b ^ c ^ d) + 0x6ED9EBA1 + w[j];
+            b = Integer.rotateLeft(b, 30);
+            d += Integer.rotateLeft(e, 5) + (a ^ b ^ c) + 0x6ED9EBA1 + w[j + 1];
+            a = Integer.rotateLeft(a, 30);
+            c += Integer.rotateLeft(d, 5) + (e ^ a ^ b) + 0x6ED9EBA1 + w[j + 2];
+            e = Integer.rotateLeft(e, 30);
+            b += Integer.rotateLeft(c, 5) + (d ^ e ^ a) + 0x6ED9EBA1 + w[j + 3];
+            d = Integer.rotateLeft(d, 30);
+            a += Integer.rotateLeft(b, 5) + (c ^ d ^ e) + 0x6ED9EBA1 + w[j + 4];
+            c = Integer.rotateLeft(c, 30);
+        }
+        for (int j = 40; j < 60; j += 5) {
+            e += Integer.rotateLeft(a, 5) + ((b & c) | (d & (b | c))) + 0x8F1BBCDC + w[j];
+            b = Integer.rotateLeft(b, 30);
+            d += Integer.rotateLeft(e, 5) + ((a & b) | (c & (a | b))) + 0x8F1BBCDC + w[j + 1];
+            a = Integer.rotateLeft(a, 30);
+            c += Integer.rotateLeft(d, 5) + ((e & a) | (b & (e | a))) + 0x8F1BBCDC + w[j + 2];
+            e = Integer.rotateLeft(e, 30);
+            b += Integer.rotateLeft(c, 5) + ((d & e) | (a & (d | e))) + 0x8F1BBCDC + w[j + 3];
+            d = Integer.rotateLeft(d, 30);
+            a += Integer.rotateLeft(b, 5) + ((c & d) | (e & (c | d))) + 0x8F1BBCDC + w[j + 4];
+            c = Integer.rotateLeft(c, 30);
+        }
+        for (int j = 60; j < 80; j += 5) {
+            e += Integer.rotateLeft(a, 5) + (b ^ c ^ d) + 0xCA62C1D6 + w[j];
+            b = Integer.rotateLeft(b, 30);
+            d += Integer.rotateLeft(e, 5) + (a ^ b ^ c) + 0xCA62C1D6 + w[j + 1];
+            a = Integer.rotateLeft(a, 30);
+            c += Integer.rotateLeft(d, 5) + (e ^ a ^ b) + 0xCA62C1D6 + w[j + 2];
+            e = Integer.rotateLeft(e, 30);
+            b += Integer.rotateLeft(c, 5) + (d ^ e ^ a) + 0xCA62C1D6 + w[j + 3];
+            d = Integer.rotateLeft(d, 30);
+            a += Integer.rotateLeft(b, 5) + (c ^ d ^ e) + 0xCA62C1D6 + w[j + 4];
+            c = Integer.rotateLeft(c, 30);
+        }
+        h0 += a;
+        h1 += b;
+        h2 += c;
+        h3 += d;
+        h4 += e;
     }
 
     private byte[] hashToArray(int h0, int h1, int h2, int h3, int h4) {
@@ -106,4 +261,4 @@ public class SHA1 {
         return bytes;
     }
 
-}
\ No newline at end of file
+}
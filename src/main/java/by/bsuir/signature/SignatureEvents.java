@@ -0,0 +1,93 @@
+package by.bsuir.signature;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR events for each phase; when no recording asks for them begin() and commit() do nothing and the JIT drops the allocation
+final class SignatureEvents {
+
+    private SignatureEvents() {
+    }
+
+    @Name("by.bsuir.signature.Hash")
+    @Label("Hash File")
+    @Category({"Digital Signature"})
+    @StackTrace(false)
+    static final class Hash extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Tree Chunk Size")
+        @DataAmount
+        int treeChunkSize;
+
+    }
+
+    @Name("by.bsuir.signature.Rewrite")
+    @Label("Write Signature")
+    @Category({"Digital Signature"})
+    @StackTrace(false)
+    static final class Rewrite extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Detached")
+        boolean detached;
+
+    }
+
+    @Name("by.bsuir.signature.ModExp")
+    @Label("Modular Exponentiation")
+    @Category({"Digital Signature"})
+    @StackTrace(false)
+    static final class ModExp extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Modulus Bits")
+        int modulusBits;
+
+    }
+
+    @Name("by.bsuir.signature.Sign")
+    @Label("Sign File")
+    @Category({"Digital Signature"})
+    static final class Sign extends Event {
+
+        @Label("Path")
+        String path;
+
+    }
+
+    @Name("by.bsuir.signature.Verify")
+    @Label("Verify File")
+    @Category({"Digital Signature"})
+    static final class Verify extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Valid")
+        boolean valid;
+
+    }
+
+}
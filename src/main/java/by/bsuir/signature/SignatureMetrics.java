@@ -0,0 +1,105 @@
+package by.bsuir.signature;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// LongAdder counters, so one instance can be shared by every DigitalSignature of a process
+public final class SignatureMetrics implements Metrics {
+
+    private final LongAdder hashedBytes = new LongAdder();
+
+    private final LongAdder hashNanos = new LongAdder();
+
+    private final LongAdder readBytes = new LongAdder();
+
+    private final LongAdder readNanos = new LongAdder();
+
+    private final LongAdder rewrittenBytes = new LongAdder();
+
+    private final LatencyHistogram rewrites = new LatencyHistogram();
+
+    private final LatencyHistogram modExps = new LatencyHistogram();
+
+    private final LatencyHistogram signatures = new LatencyHistogram();
+
+    private final LatencyHistogram verifications = new LatencyHistogram();
+
+    @Override
+    public void hashed(String algorithm, long bytes, long nanos) {
+        hashedBytes.add(bytes);
+        hashNanos.add(nanos);
+    }
+
+    @Override
+    public void read(long bytes, long nanos) {
+        readBytes.add(bytes);
+        readNanos.add(nanos);
+    }
+
+    @Override
+    public void rewritten(long bytes, long nanos) {
+        rewrittenBytes.add(bytes);
+        rewrites.record(nanos);
+    }
+
+    @Override
+    public void modExp(long nanos) {
+        modExps.record(nanos);
+    }
+
+    @Override
+    public void signed(long nanos) {
+        signatures.record(nanos);
+    }
+
+    @Override
+    public void verified(long nanos) {
+        verifications.record(nanos);
+    }
+
+    public LatencyHistogram getModExps() {
+        return modExps;
+    }
+
+    public LatencyHistogram getRewrites() {
+        return rewrites;
+    }
+
+    public LatencyHistogram getSignatures() {
+        return signatures;
+    }
+
+    public LatencyHistogram getVerifications() {
+        return verifications;
+    }
+
+    // hash throughput counts only the time inside the hash function, read throughput only the reads
+    public Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new LinkedHashMap<>();
+        snapshot.put("hash.bytes", hashedBytes.sum());
+        snapshot.put("hash.nanos", hashNanos.sum());
+        snapshot.put("hash.mbPerSecond", mbPerSecond(hashedBytes.sum(), hashNanos.sum()));
+        snapshot.put("read.bytes", readBytes.sum());
+        snapshot.put("read.nanos", readNanos.sum());
+        snapshot.put("read.mbPerSecond", mbPerSecond(readBytes.sum(), readNanos.sum()));
+        snapshot.put("rewrite.bytes", rewrittenBytes.sum());
+        put(snapshot, "rewrite", rewrites);
+        put(snapshot, "modexp", modExps);
+        put(snapshot, "sign", signatures);
+        put(snapshot, "verify", verifications);
+        return snapshot;
+    }
+
+    private static void put(Map<String, Number> snapshot, String name, LatencyHistogram histogram) {
+        snapshot.put(name + ".count", histogram.count());
+        snapshot.put(name + ".nanos", histogram.totalNanos());
+        snapshot.put(name + ".p50Nanos", histogram.percentile(50));
+        snapshot.put(name + ".p99Nanos", histogram.percentile(99));
+    }
+
+    private static double mbPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : bytes * 1e9 / nanos / (1024 * 1024);
+    }
+
+}
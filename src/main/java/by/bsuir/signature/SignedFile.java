@@ -0,0 +1,58 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+
+final class SignedFile {
+
+    private final Path path;
+
+    private final BigInteger r;
+
+    private final BigInteger s;
+
+    private final BigInteger hash;
+
+    private final byte[] cacheKey;
+
+    private final boolean cached;
+
+    SignedFile(Path path, BigInteger r, BigInteger s, BigInteger hash) {
+        this(path, r, s, hash, null, false);
+    }
+
+    // a cached file was confirmed by the verification cache and has no s
+    SignedFile(Path path, BigInteger r, BigInteger s, BigInteger hash, byte[] cacheKey, boolean cached) {
+        this.path = path;
+        this.r = r;
+        this.s = s;
+        this.hash = hash;
+        this.cacheKey = cacheKey;
+        this.cached = cached;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    BigInteger getR() {
+        return r;
+    }
+
+    BigInteger getS() {
+        return s;
+    }
+
+    BigInteger getHash() {
+        return hash;
+    }
+
+    byte[] getCacheKey() {
+        return cacheKey;
+    }
+
+    boolean isCached() {
+        return cached;
+    }
+
+}
@@ -0,0 +1,97 @@
+package by.bsuir.signature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// leaf_i = H(0x00 || chunk_i), root = H(0x01 || chunk size (4) || leaf_0 || ... || leaf_n-1) xor ROOT_MASK; leaves are hashed
+// on the common fork-join pool and each finished chunk size is passed to progress from the thread that hashed it.
+// The mask keeps the root from being the plain hash of a byte string: without it "0x01 || chunk size || leaves" saved
+// as a file would carry the tree signature over as a plain one, since the mode is read from the unsigned trailer.
+// For the same reason the chunk size of a file to check is untrusted: it is held to MIN_CHUNK_SIZE, the leaf count
+// to MAX_LEAVES, and every thread reads its chunks through one reused buffer.
+final class TreeHash {
+
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    static final int MAX_LEAVES = 1 << 20;
+
+    private static final int READ_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_SIZE));
+
+    private static final byte[] LEAF_PREFIX = {0x00};
+
+    private static final byte[] ROOT_PREFIX = {0x01};
+
+    private static final byte ROOT_MASK = 0x5C;
+
+    private TreeHash() {
+    }
+
+    // 0 turns tree hashing off
+    static boolean isValidChunkSize(int chunkSize) {
+        return chunkSize == 0 || chunkSize >= MIN_CHUNK_SIZE;
+    }
+
+    static boolean fits(long count, int chunkSize) {
+        return (count + chunkSize - 1) / chunkSize <= MAX_LEAVES;
+    }
+
+    static BigInteger hash(FileChannel channel, long count, HashAlgorithm algorithm, Supplier<HashFunction> functions, int chunkSize, BigInteger q, LongConsumer progress) throws IOException {
+        if (chunkSize < MIN_CHUNK_SIZE || !fits(count, chunkSize)) throw new IOException("Chunk size " + chunkSize + " can't hash " + count + " bytes");
+        int chunks = (int) ((count + chunkSize - 1) / chunkSize);
+        byte[][] leaves;
+        try {
+            leaves = IntStream.range(0, chunks).parallel()
+                    .mapToObj(i -> leaf(channel, (long) i * chunkSize, Math.min(chunkSize, count - (long) i * chunkSize), functions, progress))
+                    .toArray(byte[][]::new);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        HashFunction root = functions.get();
+        root.update(ROOT_PREFIX, 0, ROOT_PREFIX.length);
+        byte[] size = ByteBuffer.allocate(4).putInt(chunkSize).array();
+        root.update(size, 0, size.length);
+        for (byte[] leaf : leaves) {
+            root.update(leaf, 0, leaf.length);
+        }
+        byte[] mask = new byte[root.digestLength()];
+        Arrays.fill(mask, ROOT_MASK);
+        return algorithm.toInteger(root.digest().xor(new BigInteger(1, mask)), root.digestLength(), q);
+    }
+
+    private static byte[] leaf(FileChannel channel, long position, long size, Supplier<HashFunction> functions, LongConsumer progress) {
+        HashFunction function = functions.get();
+        function.update(LEAF_PREFIX, 0, LEAF_PREFIX.length);
+        ByteBuffer buffer = BUFFERS.get();
+        try {
+            for (long done = 0; done < size; ) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - done));
+                int read = channel.read(buffer, position + done);
+                if (read < 0) throw new IOException("File is shorter than " + (position + size) + " bytes");
+                done += read;
+                function.update(buffer.flip());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        progress.accept(size);
+        return toBytes(function.digest(), function.digestLength());
+    }
+
+    private static byte[] toBytes(BigInteger digest, int length) {
+        byte[] bytes = digest.toByteArray();
+        byte[] result = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, result, length - copy, copy);
+        return result;
+    }
+
+}
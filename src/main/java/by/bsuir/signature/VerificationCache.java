@@ -0,0 +1,224 @@
+package by.bsuir.signature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Remembers files that verified, so an unchanged file is confirmed from its metadata alone. The index is a
+// memory-mapped file of sets of WAYS slots; a key picks its set and the least recently used slot of the set is
+// replaced. Slot: SHA-256 key (32) | last use (8) | CRC32 of the rest (4) | r length (1) | hash length (1) | r | hash.
+// Only valid signatures are stored, and whoever can write the index can make files pass, so keep it private.
+public final class VerificationCache implements Closeable {
+
+    private static final int MAGIC = 0x44535643;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int WAYS = 8;
+
+    private static final int KEY_SIZE = 32;
+
+    private static final int VALUE_SIZE = 64;
+
+    private static final int SLOT_SIZE = 176;
+
+    private static final int TICK_OFFSET = KEY_SIZE;
+
+    private static final int CRC_OFFSET = TICK_OFFSET + 8;
+
+    private static final int VALUE_OFFSET = CRC_OFFSET + 4;
+
+    // a file written within this window could still change without its size or mtime changing
+    private static final Duration RACY_WINDOW = Duration.ofSeconds(2);
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer index;
+
+    private final int sets;
+
+    private long tick;
+
+    private VerificationCache(FileChannel channel, MappedByteBuffer index, int sets, long tick) {
+        this.channel = channel;
+        this.index = index;
+        this.sets = sets;
+        this.tick = tick;
+    }
+
+    public static VerificationCache open(Path file) throws IOException {
+        return open(file, 32768);
+    }
+
+    // an index made for a different capacity, or not an index at all, is started over
+    public static VerificationCache open(Path file, int capacity) throws IOException {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity should be positive");
+        int sets = (capacity + WAYS - 1) / WAYS;
+        long size = HEADER_SIZE + (long) sets * WAYS * SLOT_SIZE;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean valid = channel.size() == size;
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            valid = valid && index.getInt(0) == MAGIC && index.getInt(4) == VERSION && index.getInt(8) == sets;
+            if (!valid) {
+                for (int i = 0; i < size; i++) {
+                    index.put(i, (byte) 0);
+                }
+                index.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, sets).putLong(16, 0);
+            }
+            return new VerificationCache(channel, index, sets, index.getLong(16));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // null when the file or its sidecar was modified too recently to be trusted by metadata,
+    // or when the sidecar is missing, so the uncached path reports the file as not signed
+    static byte[] key(Path path, PublicKey publicKey, boolean detached) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!addAttributes(digest, path)) return null;
+        Path sidecar = DetachedSignature.sidecar(path);
+        if (detached && (!Files.isRegularFile(sidecar) || !addAttributes(digest, sidecar))) return null;
+        digest.update(path.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(publicKey.getParameters().fingerprint());
+        digest.update(publicKey.getY().toByteArray());
+        digest.update((byte) (detached ? 1 : 0));
+        return digest.digest();
+    }
+
+    private static boolean addAttributes(MessageDigest digest, Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        if (System.currentTimeMillis() * 1_000_000 - modified < RACY_WINDOW.toNanos()) return false;
+        digest.update(ByteBuffer.allocate(16).putLong(attributes.size()).putLong(modified).array());
+        digest.update(String.valueOf(attributes.fileKey()).getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    // {r, hash} of the signature that verified, or null
+    synchronized BigInteger[] lookup(byte[] key) {
+        int slot = find(key);
+        if (slot < 0) return null;
+        ByteBuffer entry = slot(slot);
+        if (crc(entry) != entry.getInt(CRC_OFFSET)) return null;
+        entry.putLong(TICK_OFFSET, nextTick());
+        int rLength = entry.get(VALUE_OFFSET);
+        int hashLength = entry.get(VALUE_OFFSET + 1);
+        return new BigInteger[]{value(entry, VALUE_OFFSET + 2, rLength), value(entry, VALUE_OFFSET + 2 + VALUE_SIZE, hashLength)};
+    }
+
+    synchronized void store(byte[] key, BigInteger r, BigInteger hash) {
+        byte[] rBytes = r.toByteArray();
+        byte[] hashBytes = hash.toByteArray();
+        if (rBytes.length > VALUE_SIZE || hashBytes.length > VALUE_SIZE) return;
+        int slot = find(key);
+        if (slot < 0) slot = leastRecentlyUsed(key);
+        ByteBuffer entry = slot(slot);
+        // the key goes last, a slot torn by a crash fails the CRC or matches nothing
+        for (int i = 0; i < KEY_SIZE; i++) {
+            entry.put(i, (byte) 0);
+        }
+        entry.putLong(TICK_OFFSET, nextTick());
+        entry.put(VALUE_OFFSET, (byte) rBytes.length);
+        entry.put(VALUE_OFFSET + 1, (byte) hashBytes.length);
+        entry.put(VALUE_OFFSET + 2, rBytes);
+        entry.put(VALUE_OFFSET + 2 + VALUE_SIZE, hashBytes);
+        entry.put(0, key);
+        entry.putInt(CRC_OFFSET, crc(entry));
+    }
+
+    synchronized void remove(byte[] key) {
+        int slot = find(key);
+        if (slot < 0) return;
+        ByteBuffer entry = slot(slot);
+        for (int i = 0; i < SLOT_SIZE; i++) {
+            entry.put(i, (byte) 0);
+        }
+    }
+
+    public synchronized void clear() {
+        for (int i = HEADER_SIZE; i < index.capacity(); i++) {
+            index.put(i, (byte) 0);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        channel.close();
+    }
+
+    private int find(byte[] key) {
+        int first = firstSlot(key);
+        for (int way = 0; way < WAYS; way++) {
+            ByteBuffer entry = slot(first + way);
+            if (entry.getLong(TICK_OFFSET) != 0 && keyEquals(entry, key)) return first + way;
+        }
+        return -1;
+    }
+
+    private int leastRecentlyUsed(byte[] key) {
+        int first = firstSlot(key);
+        int oldest = first;
+        for (int way = 1; way < WAYS; way++) {
+            if (slot(first + way).getLong(TICK_OFFSET) < slot(oldest).getLong(TICK_OFFSET)) oldest = first + way;
+        }
+        return oldest;
+    }
+
+    private int firstSlot(byte[] key) {
+        int hash = ByteBuffer.wrap(key).getInt();
+        return Math.floorMod(hash, sets) * WAYS;
+    }
+
+    private ByteBuffer slot(int slot) {
+        return index.slice(HEADER_SIZE + slot * SLOT_SIZE, SLOT_SIZE);
+    }
+
+    private long nextTick() {
+        index.putLong(16, ++tick);
+        return tick;
+    }
+
+    private static boolean keyEquals(ByteBuffer entry, byte[] key) {
+        for (int i = 0; i < KEY_SIZE; i++) {
+            if (entry.get(i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private static int crc(ByteBuffer entry) {
+        CRC32 crc = new CRC32();
+        crc.update(entry.slice(0, TICK_OFFSET));
+        crc.update(entry.slice(VALUE_OFFSET, SLOT_SIZE - VALUE_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static BigInteger value(ByteBuffer entry, int offset, int length) {
+        byte[] bytes = new byte[length];
+        entry.get(offset, bytes);
+        return new BigInteger(bytes);
+    }
+
+}
@@ -0,0 +1,59 @@
+package by.bsuir.signature;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+
+public final class VerificationResult {
+
+    private final Path path;
+
+    private final BigInteger r;
+
+    private final BigInteger v;
+
+    private final BigInteger hash;
+
+    private final Exception error;
+
+    VerificationResult(Path path, BigInteger r, BigInteger v, BigInteger hash) {
+        this.path = path;
+        this.r = r;
+        this.v = v;
+        this.hash = hash;
+        this.error = null;
+    }
+
+    VerificationResult(Path path, Exception error) {
+        this.path = path;
+        this.r = null;
+        this.v = null;
+        this.hash = null;
+        this.error = error;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public BigInteger getR() {
+        return r;
+    }
+
+    public BigInteger getV() {
+        return v;
+    }
+
+    public BigInteger getHash() {
+        return hash;
+    }
+
+    // WrongFileException for unsigned files, IOException for unreadable ones, null on success
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isValid() {
+        return error == null && r.equals(v);
+    }
+
+}
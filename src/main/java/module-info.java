@@ -2,6 +2,7 @@ module by.bsuir {
     requires javafx.controls;
     requires javafx.fxml;
     requires commons.codec;
+    requires jdk.jfr;
 
     opens by.bsuir to javafx.fxml;
     exports by.bsuir;
@@ -0,0 +1,97 @@
+package by.bsuir.signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// every fast path is checked against the BigInteger operation it replaces
+class ArithmeticTest {
+
+    @Test
+    void montgomeryMatchesModPow() {
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            BigInteger modulus = i % 5 == 0
+                    ? BigInteger.ONE.shiftLeft(32 * (1 + random.nextInt(8))).subtract(BigInteger.ONE)
+                    : new BigInteger(2 + random.nextInt(600), random).setBit(0);
+            if (modulus.equals(BigInteger.ONE)) continue;
+            Montgomery montgomery = new Montgomery(modulus);
+            BigInteger a = new BigInteger(700, random);
+            BigInteger b = new BigInteger(700, random);
+            BigInteger exponent = new BigInteger(random.nextInt(300), random);
+            assertEquals(a.modPow(exponent, modulus), montgomery.pow(a, exponent));
+            assertEquals(a.multiply(b).mod(modulus), montgomery.multiply(a, b));
+        }
+    }
+
+    @Test
+    void powProductMatchesTwoModPows() {
+        Random random = new Random(12);
+        DomainParameters parameters = TestKeys.PARAMETERS;
+        BigInteger p = parameters.getP();
+        Montgomery montgomery = new Montgomery(p);
+        for (int i = 0; i < 200; i++) {
+            BigInteger a = new BigInteger(p.bitLength() - 1, random);
+            BigInteger b = new BigInteger(p.bitLength() - 1, random);
+            BigInteger e1 = new BigInteger(1 + random.nextInt(200), random);
+            BigInteger e2 = new BigInteger(1 + random.nextInt(200), random);
+            assertEquals(a.modPow(e1, p).multiply(b.modPow(e2, p)).mod(p), MultiExponentiation.powProduct(a, e1, b, e2, montgomery));
+        }
+    }
+
+    @Test
+    void fixedBaseTableMatchesModPow() {
+        Random random = new Random(13);
+        DomainParameters parameters = TestKeys.PARAMETERS;
+        BigInteger p = parameters.getP();
+        BigInteger q = parameters.getQ();
+        FixedBaseTable table = new FixedBaseTable(parameters.getG(), new Montgomery(p), q);
+        for (int i = 0; i < 200; i++) {
+            BigInteger exponent = new BigInteger(q.bitLength() + 8, random);
+            assertEquals(parameters.getG().modPow(exponent, p), table.pow(exponent));
+            assertEquals(parameters.getG().modPow(exponent, p), parameters.powG(exponent));
+        }
+        assertEquals(BigInteger.ONE, table.pow(BigInteger.ZERO));
+    }
+
+    @Test
+    void batchInversionMatchesModInverse() {
+        Random random = new Random(14);
+        BigInteger q = BigInteger.probablePrime(256, random);
+        for (int n = 1; n < 70; n++) {
+            BigInteger[] values = new BigInteger[n];
+            for (int i = 0; i < n; i++) {
+                do {
+                    values[i] = new BigInteger(256, random).mod(q);
+                } while (values[i].signum() == 0);
+            }
+            BigInteger[] inverses = ModularInverse.inverseAll(values, q);
+            for (int i = 0; i < n; i++) {
+                assertEquals(values[i].modInverse(q), inverses[i]);
+                assertEquals(values[i].modInverse(q), ModularInverse.inverse(values[i], q));
+            }
+        }
+        assertThrows(ArithmeticException.class, () -> ModularInverse.inverse(BigInteger.valueOf(6), BigInteger.valueOf(9)));
+    }
+
+    @Test
+    void primalityAgreesWithBigInteger() {
+        Random random = new Random(15);
+        for (int i = 0; i < 2000; i++) {
+            BigInteger n = new BigInteger(2 + random.nextInt(120), random);
+            assertEquals(n.isProbablePrime(50), Primality.isProbablePrime(n, 20), n.toString());
+        }
+        // Carmichael numbers pass the Fermat test for every coprime base
+        for (long carmichael : new long[]{561, 41041, 825265, 321197185}) {
+            assertFalse(Primality.isProbablePrime(BigInteger.valueOf(carmichael), 20));
+        }
+        assertTrue(Primality.isProbablePrime(TestKeys.PARAMETERS.getP(), 20));
+    }
+
+}
@@ -0,0 +1,312 @@
+package by.bsuir.signature;
+
+import by.bsuir.signature.exceptions.WrongFileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DigitalSignatureTest {
+
+    private final Random random = new Random(21);
+
+    private final PrivateKey privateKey = TestKeys.privateKey(random);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void signedCopiesVerifyInEveryMode() throws Exception {
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            for (int treeChunkSize : new int[]{0, 65536}) {
+                for (int size : new int[]{0, 1, 64, 100_000}) {
+                    Path file = write("copy.txt", size);
+                    DigitalSignature signature = signer();
+                    signature.setHashAlgorithm(algorithm);
+                    signature.setTreeChunkSize(treeChunkSize);
+                    signature.signFile(file.toFile());
+                    Path signed = directory.resolve("copy(signed).txt");
+                    assertValid(check(verifier(), signed), algorithm + " tree " + treeChunkSize + " size " + size);
+                    if (size > 0) {
+                        flipByte(signed, size / 2);
+                        assertInvalid(check(verifier(), signed));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void detachedSignaturesLeaveTheFileAlone() throws Exception {
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            for (int treeChunkSize : new int[]{0, 65536}) {
+                Path file = write("data.bin", 100_000);
+                byte[] original = Files.readAllBytes(file);
+                DigitalSignature signature = signer();
+                signature.setDetached(true);
+                signature.setHashAlgorithm(algorithm);
+                signature.setTreeChunkSize(treeChunkSize);
+                signature.signFile(file.toFile());
+                assertArrayEquals(original, Files.readAllBytes(file));
+                assertFalse(Files.exists(directory.resolve("data(signed).bin")));
+                DigitalSignature verifier = verifier();
+                verifier.setDetached(true);
+                assertValid(check(verifier, file), algorithm + " tree " + treeChunkSize);
+                flipByte(file, 777);
+                assertInvalid(check(verifier, file));
+            }
+        }
+        DigitalSignature verifier = verifier();
+        verifier.setDetached(true);
+        Files.delete(directory.resolve("data.bin.sig"));
+        assertThrows(WrongFileException.class, () -> verifier.checkSignature(directory.resolve("data.bin").toFile()));
+    }
+
+    @Test
+    void largeFilesAreHashedThroughMappings() throws Exception {
+        Path file = write("large.bin", 65 * 1024 * 1024 + 13);
+        DigitalSignature signature = signer();
+        signature.setDetached(true);
+        signature.signFile(file.toFile());
+        DigitalSignature verifier = verifier();
+        verifier.setDetached(true);
+        BigInteger[] numbers = check(verifier, file);
+        assertValid(numbers, "large");
+        SHA1 sha1 = new SHA1();
+        sha1.update(Files.readAllBytes(file));
+        assertEquals(sha1.digest(), numbers[2]);
+    }
+
+    // a tree signature must not carry over to the plain hash of "0x01 || chunk size || leaves" saved as a file
+    @Test
+    void treeRootsAreNotPlainHashes() throws Exception {
+        int chunkSize = 65536;
+        byte[] data = Files.readAllBytes(write("tree.txt", 200_000));
+        DigitalSignature signature = signer();
+        signature.setTreeChunkSize(chunkSize);
+        signature.signFile(directory.resolve("tree.txt").toFile());
+        String signed = new String(Files.readAllBytes(directory.resolve("tree(signed).txt")), StandardCharsets.ISO_8859_1);
+        String[] rs = signed.substring(signed.lastIndexOf('\n') + 1).trim().split(",");
+        for (boolean withChunkSize : new boolean[]{false, true}) {
+            ByteArrayOutputStream forged = new ByteArrayOutputStream();
+            forged.write(1);
+            if (withChunkSize) forged.write(ByteBuffer.allocate(4).putInt(chunkSize).array());
+            for (int offset = 0; offset < data.length; offset += chunkSize) {
+                SHA1 leaf = new SHA1();
+                leaf.update(new byte[]{0});
+                leaf.update(data, offset, Math.min(chunkSize, data.length - offset));
+                forged.write(toBytes(leaf));
+            }
+            forged.write(("\n" + rs[0] + "," + rs[1]).getBytes(StandardCharsets.US_ASCII));
+            Path forgery = directory.resolve("forged(signed).txt");
+            Files.write(forgery, forged.toByteArray());
+            assertInvalid(check(verifier(), forgery));
+        }
+    }
+
+    // the chunk size is not signed, so one that would make millions of leaves is refused before hashing
+    @Test
+    void untrustedChunkSizesAreRejected() throws Exception {
+        Path trailed = write("small(signed).txt", 1_000_000);
+        Files.write(trailed, "\n1,1,SHA-1,tree:1".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        assertThrows(WrongFileException.class, () -> check(verifier(), trailed));
+        Path file = write("sidecar.bin", 1_000_000);
+        DigitalSignature signature = signer();
+        signature.setDetached(true);
+        signature.setTreeChunkSize(TreeHash.MIN_CHUNK_SIZE);
+        signature.signFile(file.toFile());
+        Path sidecar = directory.resolve("sidecar.bin.sig");
+        byte[] encoded = Files.readAllBytes(sidecar);
+        ByteBuffer.wrap(encoded).putInt(8, 1);
+        Files.write(sidecar, encoded);
+        DigitalSignature verifier = verifier();
+        verifier.setDetached(true);
+        assertThrows(WrongFileException.class, () -> check(verifier, file));
+        assertThrows(IllegalArgumentException.class, () -> signature.setTreeChunkSize(TreeHash.MIN_CHUNK_SIZE - 1));
+    }
+
+    @Test
+    void batchVerificationMatchesSingleChecks() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path file = write("batch" + i + ".txt", 1000 + i);
+            signer().signFile(file.toFile());
+            files.add(directory.resolve("batch" + i + "(signed).txt"));
+        }
+        flipByte(files.get(3), 10);
+        files.add(directory.resolve("missing(signed).txt"));
+        List<VerificationResult> results;
+        try (Stream<VerificationResult> stream = verifier().verifyAll(files)) {
+            results = stream.collect(Collectors.toList());
+        }
+        assertEquals(files.size(), results.size());
+        for (VerificationResult result : results) {
+            int index = files.indexOf(result.getPath());
+            assertEquals(index != 3 && index != 20, result.isValid(), result.getPath().toString());
+        }
+        List<VerificationResult> batch = verifier().verifyBatch(files, Runnable::run);
+        for (int i = 0; i < files.size(); i++) {
+            assertEquals(files.get(i), batch.get(i).getPath());
+            assertEquals(i != 3 && i != 20, batch.get(i).isValid());
+        }
+    }
+
+    @Test
+    void cachedFilesAreNotHashedAgain() throws Exception {
+        Path file = write("cached.txt", 100_000);
+        signer().signFile(file.toFile());
+        Path signed = directory.resolve("cached(signed).txt");
+        // files modified within the last moments are never trusted by their metadata
+        Files.setLastModifiedTime(signed, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        try (VerificationCache cache = VerificationCache.open(directory.resolve("cache.idx"))) {
+            for (int round = 0; round < 2; round++) {
+                SignatureMetrics metrics = new SignatureMetrics();
+                DigitalSignature verifier = verifier();
+                verifier.setVerificationCache(cache);
+                verifier.setMetrics(metrics);
+                assertValid(check(verifier, signed), "round " + round);
+                assertEquals(round == 0 ? 100_000L : 0L, hashedBytes(metrics));
+            }
+            flipByte(signed, 5);
+            Files.setLastModifiedTime(signed, FileTime.fromMillis(System.currentTimeMillis() - 30_000));
+            DigitalSignature verifier = verifier();
+            verifier.setVerificationCache(cache);
+            assertInvalid(check(verifier, signed));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+            DigitalSignature detached = verifier();
+            detached.setDetached(true);
+            detached.setVerificationCache(cache);
+            assertThrows(WrongFileException.class, () -> detached.checkSignature(file.toFile()));
+        }
+    }
+
+    @Test
+    void checkpointsHashOnlyTheAppendedTail() throws Exception {
+        CheckpointStore store = new CheckpointStore(directory.resolve("checkpoints"));
+        Path file = write("journal.log", 1_000_000);
+        for (int round = 0; round < 4; round++) {
+            if (round > 0) append(file, 100 + round);
+            SignatureMetrics metrics = new SignatureMetrics();
+            DigitalSignature signature = signer();
+            signature.setDetached(true);
+            signature.setCheckpointStore(store);
+            signature.setMetrics(metrics);
+            signature.signFile(file.toFile());
+            assertTrue(round == 0 ? hashedBytes(metrics) == Files.size(file) : hashedBytes(metrics) < 200, "round " + round);
+            DigitalSignature verifier = verifier();
+            verifier.setDetached(true);
+            assertValid(check(verifier, file), "round " + round);
+        }
+        // a rewritten start is caught by the guard and the whole file is hashed again
+        flipByte(file, 10);
+        SignatureMetrics metrics = new SignatureMetrics();
+        DigitalSignature signature = signer();
+        signature.setDetached(true);
+        signature.setCheckpointStore(store);
+        signature.setMetrics(metrics);
+        signature.signFile(file.toFile());
+        assertEquals(Files.size(file), hashedBytes(metrics));
+        DigitalSignature verifier = verifier();
+        verifier.setDetached(true);
+        assertValid(check(verifier, file), "rewritten");
+    }
+
+    @Test
+    void outputsKeepDefaultPermissions() throws Exception {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) return;
+        Path file = write("mode.txt", 10);
+        Path probe = Files.createFile(directory.resolve("probe"));
+        signer().signFile(file.toFile());
+        assertEquals(Files.getPosixFilePermissions(probe), Files.getPosixFilePermissions(directory.resolve("mode(signed).txt")));
+    }
+
+    @Test
+    void signedCopiesStayNextToTheirFile() throws Exception {
+        Path dotted = Files.createDirectory(directory.resolve("x.d"));
+        assertEquals(dotted.resolve("README(signed).txt"), DigitalSignature.signedFile(dotted.resolve("README")));
+        assertEquals(dotted.resolve(".profile(signed).txt"), DigitalSignature.signedFile(dotted.resolve(".profile")));
+        assertEquals(dotted.resolve("a.b(signed).txt"), DigitalSignature.signedFile(dotted.resolve("a.b.c")));
+        Path file = Files.write(dotted.resolve("Makefile"), new byte[]{1, 2, 3});
+        signer().signFile(file.toFile());
+        assertValid(check(verifier(), dotted.resolve("Makefile(signed).txt")), "Makefile");
+    }
+
+    private DigitalSignature signer() {
+        return new DigitalSignature(privateKey, TestKeys.nonce(random), (r, s, hash) -> {
+        });
+    }
+
+    private DigitalSignature verifier() {
+        return new DigitalSignature(privateKey.getPublicKey(), (r, s, hash) -> {
+        });
+    }
+
+    private static BigInteger[] check(DigitalSignature verifier, Path file) throws WrongFileException, IOException {
+        return verifier.checkSignature(file.toFile());
+    }
+
+    private static void assertValid(BigInteger[] numbers, String message) {
+        assertEquals(numbers[0], numbers[1], message);
+    }
+
+    private static void assertInvalid(BigInteger[] numbers) {
+        assertNotEquals(numbers[0], numbers[1]);
+    }
+
+    private Path write(String name, int size) throws IOException {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        // no line feeds, so the trailer is the only last line
+        for (int i = 0; i < size; i++) {
+            if (data[i] == '\n') data[i] = ' ';
+        }
+        return Files.write(directory.resolve(name), data);
+    }
+
+    private void append(Path file, int size) throws IOException {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        Files.write(file, data, StandardOpenOption.APPEND);
+    }
+
+    private static void flipByte(Path file, int position) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        data[position] ^= 1;
+        if (data[position] == '\n') data[position] ^= 2;
+        Files.write(file, data);
+    }
+
+    private static long hashedBytes(SignatureMetrics metrics) {
+        return ((Number) metrics.snapshot().get("hash.bytes")).longValue();
+    }
+
+    private static byte[] toBytes(SHA1 leaf) {
+        byte[] digest = leaf.digest().toByteArray();
+        byte[] bytes = new byte[20];
+        int copy = Math.min(digest.length, bytes.length);
+        System.arraycopy(digest, digest.length - copy, bytes, bytes.length - copy, copy);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,47 @@
+package by.bsuir.signature;
+
+import by.bsuir.signature.exceptions.WrongValueException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DomainParametersTest {
+
+    private static final BigInteger P = TestKeys.PARAMETERS.getP();
+
+    private static final BigInteger Q = TestKeys.PARAMETERS.getQ();
+
+    private static final BigInteger G = TestKeys.PARAMETERS.getG();
+
+    @Test
+    void acceptsValidParameters() throws WrongValueException {
+        assertNull(DomainParameters.findDefect(P, Q, G));
+        assertEquals(TestKeys.PARAMETERS, new DomainParameters(P, Q, G));
+    }
+
+    @Test
+    void reportsEachDefect() {
+        assertEquals(DomainParameters.Defect.NOT_POSITIVE, DomainParameters.findDefect(P.negate(), Q, G));
+        assertEquals(DomainParameters.Defect.NOT_PRIME, DomainParameters.findDefectOfH(value(31), value(15), value(2)));
+        assertEquals(DomainParameters.Defect.Q_DOES_NOT_DIVIDE, DomainParameters.findDefectOfH(value(31), value(7), value(2)));
+        assertEquals(DomainParameters.Defect.H_OUT_OF_RANGE, DomainParameters.findDefectOfH(P, Q, P.subtract(BigInteger.ONE)));
+        assertEquals(DomainParameters.Defect.G_OUT_OF_RANGE, DomainParameters.findDefect(P, Q, BigInteger.ONE));
+        assertEquals(DomainParameters.Defect.G_WRONG_ORDER, DomainParameters.findDefect(P, Q, P.subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    void constructorsRejectDefects() {
+        assertThrows(WrongValueException.class, () -> DomainParameters.fromH(value(31), value(15), value(2)));
+        assertThrows(WrongValueException.class, () -> new DomainParameters(P, Q, P.subtract(BigInteger.ONE)));
+        assertThrows(WrongValueException.class, () -> new DomainParameters(P, Q.add(BigInteger.TWO), G));
+    }
+
+    private static BigInteger value(long value) {
+        return BigInteger.valueOf(value);
+    }
+
+}
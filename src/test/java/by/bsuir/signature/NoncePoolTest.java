@@ -0,0 +1,35 @@
+package by.bsuir.signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class NoncePoolTest {
+
+    @Test
+    void noncesMatchTheirK() {
+        try (NoncePool pool = new NoncePool(TestKeys.PARAMETERS, 4)) {
+            BigInteger q = TestKeys.PARAMETERS.getQ();
+            for (int i = 0; i < 10; i++) {
+                Nonce nonce = pool.next();
+                BigInteger k = nonce.getKInverse().modInverse(q);
+                assertEquals(TestKeys.PARAMETERS.getG().modPow(k, TestKeys.PARAMETERS.getP()).mod(q), nonce.getR());
+            }
+        }
+    }
+
+    @Test
+    void closedPoolFailsInsteadOfWaiting() {
+        NoncePool pool = new NoncePool(TestKeys.PARAMETERS, 4);
+        pool.close();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(IllegalStateException.class, pool::next);
+        });
+    }
+
+}
@@ -0,0 +1,109 @@
+package by.bsuir.signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SHA1Test {
+
+    @Test
+    void knownAnswers() {
+        SHA1 sha1 = new SHA1();
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", hex(sha1.sha1(new byte[0])));
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", hex(sha1.sha1(bytes("abc"))));
+        assertEquals("84983e441c3bd26ebaae4aa1f95129e5e54670f1",
+                hex(sha1.sha1(bytes("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq"))));
+    }
+
+    @Test
+    void matchesMessageDigestAcrossBlockBoundaries() throws Exception {
+        Random random = new Random(1);
+        SHA1 sha1 = new SHA1();
+        for (int length = 0; length <= 300; length++) {
+            byte[] message = new byte[length];
+            random.nextBytes(message);
+            assertEquals(reference(message), sha1.sha1(message), "length " + length);
+        }
+    }
+
+    @Test
+    void splitUpdatesMatchOneUpdate() throws Exception {
+        Random random = new Random(2);
+        byte[] message = new byte[5000];
+        random.nextBytes(message);
+        for (int round = 0; round < 50; round++) {
+            SHA1 sha1 = new SHA1();
+            for (int offset = 0; offset < message.length; ) {
+                int length = Math.min(random.nextInt(200), message.length - offset);
+                sha1.update(message, offset, length);
+                offset += length;
+            }
+            assertEquals(reference(message), sha1.digest());
+        }
+    }
+
+    @Test
+    void byteBuffersOfEveryKindAreConsumed() throws Exception {
+        Random random = new Random(3);
+        byte[] message = new byte[1000];
+        random.nextBytes(message);
+        ByteBuffer[] buffers = {
+                ByteBuffer.wrap(message),
+                ByteBuffer.allocateDirect(message.length).put(message).flip(),
+                ByteBuffer.allocateDirect(message.length).order(ByteOrder.LITTLE_ENDIAN).put(message).flip()
+        };
+        for (ByteBuffer buffer : buffers) {
+            SHA1 sha1 = new SHA1();
+            sha1.update(new byte[]{1, 2, 3}, 1, 1);
+            while (buffer.hasRemaining()) {
+                sha1.update(buffer.slice().limit(Math.min(77, buffer.remaining())));
+                buffer.position(Math.min(buffer.position() + 77, buffer.limit()));
+            }
+            byte[] expected = new byte[message.length + 1];
+            expected[0] = 2;
+            System.arraycopy(message, 0, expected, 1, message.length);
+            assertEquals(reference(expected), sha1.digest());
+        }
+        ByteBuffer littleEndian = ByteBuffer.allocateDirect(100).order(ByteOrder.LITTLE_ENDIAN);
+        new SHA1().update(littleEndian);
+        assertEquals(littleEndian.limit(), littleEndian.position());
+    }
+
+    @Test
+    void midstateResumesHashing() throws Exception {
+        byte[] message = new byte[1000];
+        new Random(4).nextBytes(message);
+        SHA1 first = new SHA1();
+        first.update(message, 0, 640);
+        SHA1 second = new SHA1();
+        second.importMidstate(first.exportMidstate());
+        second.update(message, 640, message.length - 640);
+        assertEquals(reference(message), second.digest());
+        first.update(message, 640, 1);
+        assertThrows(IllegalStateException.class, first::exportMidstate);
+        byte[] midstate = new SHA1().exportMidstate();
+        midstate[SHA1.MIDSTATE_LENGTH - 1] = 3;
+        assertThrows(IllegalArgumentException.class, () -> new SHA1().importMidstate(midstate));
+    }
+
+    private static BigInteger reference(byte[] message) throws Exception {
+        return new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(message));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String hex(BigInteger digest) {
+        return String.format("%040x", digest);
+    }
+
+}
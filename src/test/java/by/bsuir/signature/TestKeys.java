@@ -0,0 +1,42 @@
+package by.bsuir.signature;
+
+import by.bsuir.signature.exceptions.WrongValueException;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+// small but valid parameters, built from a fixed seed so failures can be reproduced
+final class TestKeys {
+
+    static final DomainParameters PARAMETERS = parameters(new Random(7), 512, 160);
+
+    private TestKeys() {
+    }
+
+    static DomainParameters parameters(Random random, int pBits, int qBits) {
+        BigInteger q = BigInteger.probablePrime(qBits, random);
+        BigInteger p;
+        do {
+            p = new BigInteger(pBits, random).setBit(pBits - 1).divide(q).multiply(q).add(BigInteger.ONE);
+        } while (p.bitLength() != pBits || !p.isProbablePrime(40));
+        try {
+            return DomainParameters.fromH(p, q, BigInteger.TWO);
+        } catch (WrongValueException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static PrivateKey privateKey(Random random) {
+        BigInteger q = PARAMETERS.getQ();
+        BigInteger x;
+        do {
+            x = new BigInteger(q.bitLength(), random);
+        } while (x.signum() == 0 || x.compareTo(q) >= 0);
+        return new PrivateKey(PARAMETERS, x);
+    }
+
+    static BigInteger nonce(Random random) {
+        return privateKey(random).getX();
+    }
+
+}